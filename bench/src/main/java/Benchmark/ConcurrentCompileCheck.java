@@ -0,0 +1,141 @@
+package Benchmark;
+
+import SyntaxAnalyzer.CompilationContext;
+import SyntaxAnalyzer.SyntaxAnalyzer;
+import WordAnalyzer.WordAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// 在同一个进程的多个线程中同时编译几百个源文件，每个结果都与顺序编译的输出和错误信息逐字节比较
+// 每个线程反复使用同一个 CompilationContext，其中一部分源文件删掉了一个分号，检查出错的编译不会影响之后的编译
+// 用法: ConcurrentCompileCheck [sources] [threads] [rounds]
+public class ConcurrentCompileCheck {
+    private final byte[] source;
+    private final boolean text;
+    private final int optimization;
+    private final int threads; // 编译器自己的 -j
+    private final boolean wide;
+    private Result expected;
+
+    private ConcurrentCompileCheck(byte[] source, boolean text, int optimization, int threads, boolean wide) {
+        this.source = source;
+        this.text = text;
+        this.optimization = optimization;
+        this.threads = threads;
+        this.wide = wide;
+    }
+
+    // 一次编译的输出和错误信息
+    private static class Result {
+        final boolean success;
+        final byte[] output;
+        final byte[] errors;
+
+        Result(boolean success, byte[] output, byte[] errors) {
+            this.success = success;
+            this.output = output;
+            this.errors = errors;
+        }
+
+        boolean same(Result other) {
+            return success == other.success && Arrays.equals(output, other.output) && Arrays.equals(errors, other.errors);
+        }
+    }
+
+    // 输出和错误信息都写到内存中，上下文在同一个线程的多次编译中重复使用
+    private static class Sink {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final CompilationContext context = new CompilationContext(Channels.newChannel(output),
+                new PrintStream(errors, true, StandardCharsets.UTF_8));
+    }
+
+    private Result compile(Sink sink) {
+        sink.output.reset();
+        sink.errors.reset();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(source.length);
+        buffer.put(source).flip();
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new WordAnalyzer(buffer), sink.context);
+        syntaxAnalyzer.setOptimization(optimization);
+        syntaxAnalyzer.setThreads(threads);
+        syntaxAnalyzer.setWideFormat(wide);
+        boolean success = syntaxAnalyzer.analyze(false);
+        if (success && text) {
+            sink.context.getInstructionWriter().output();
+        } else if (success) {
+            sink.context.getInstructionWriter().assemble();
+        }
+        return new Result(success, sink.output.toByteArray(), sink.errors.toByteArray());
+    }
+
+    // 源文件的参数由下标决定，每五个中有一个删掉一个分号
+    private static ConcurrentCompileCheck job(int index) {
+        Random random = new Random(index);
+        String source = new CorpusGenerator(1 + random.nextInt(40), 1 + random.nextInt(4), random.nextDouble(), index).generate();
+        if (index % 5 == 4) {
+            int semicolon = source.indexOf(';', random.nextInt(source.length()));
+            if (semicolon < 0) {
+                semicolon = source.indexOf(';');
+            }
+            source = source.substring(0, semicolon) + source.substring(semicolon + 1);
+        }
+        return new ConcurrentCompileCheck(source.getBytes(StandardCharsets.US_ASCII), random.nextBoolean(), random.nextInt(3),
+                random.nextInt(3) == 0 ? 2 : 1, random.nextInt(4) == 0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sources = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        ArrayList<ConcurrentCompileCheck> jobs = new ArrayList<>();
+        Sink sequential = new Sink();
+        int failed = 0;
+        for (int i = 0; i < sources; ++i) {
+            ConcurrentCompileCheck job = job(i);
+            job.expected = job.compile(sequential);
+            if (!job.expected.success) {
+                ++failed;
+            }
+            jobs.add(job);
+        }
+        ThreadLocal<Sink> sinks = ThreadLocal.withInitial(Sink::new);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int mismatches = 0;
+        long begin = System.nanoTime();
+        try {
+            for (int round = 0; round < rounds; ++round) {
+                ArrayList<ConcurrentCompileCheck> order = new ArrayList<>(jobs);
+                Collections.shuffle(order, new Random(round));
+                ArrayList<Future<Boolean>> futures = new ArrayList<>();
+                for (ConcurrentCompileCheck job : order) {
+                    futures.add(pool.submit(() -> job.compile(sinks.get()).same(job.expected)));
+                }
+                for (int i = 0; i < futures.size(); ++i) {
+                    if (!futures.get(i).get()) {
+                        ++mismatches;
+                        System.out.println("与顺序编译不一致: 源文件 " + jobs.indexOf(order.get(i)) + "，第 " + (round + 1) + " 轮");
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long milliseconds = (System.nanoTime() - begin) / 1000000;
+        System.out.println(sources + " 个源文件 (其中 " + failed + " 个有错误) × " + rounds + " 轮，" + threads + " 个线程，用时 "
+                + milliseconds + " ms，不一致 " + mismatches + " 次");
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
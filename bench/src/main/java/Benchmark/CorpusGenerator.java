@@ -0,0 +1,160 @@
+package Benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// 生成确定的 c0 测试程序，相同的参数总是得到相同的源码
+// functions 是函数个数，depth 是 if、while 语句嵌套的层数，literalDensity 是表达式中操作数取字面量的概率
+public class CorpusGenerator {
+    private static final String[] VARIABLES = {"a", "b", "y", "z", "x"};
+    private static final char[] OPERATORS = {'+', '-', '*'};
+
+    private final int functions;
+    private final int depth;
+    private final double literalDensity;
+    private final Random random;
+    private final StringBuilder builder = new StringBuilder();
+    private int function;
+
+    public CorpusGenerator(int functions, int depth, double literalDensity, long seed) {
+        this.functions = functions;
+        this.depth = depth;
+        this.literalDensity = literalDensity;
+        this.random = new Random(seed);
+    }
+
+    public static String generate(int functions, int depth, double literalDensity) {
+        return new CorpusGenerator(functions, depth, literalDensity, 0).generate();
+    }
+
+    public String generate() {
+        builder.setLength(0);
+        builder.append("const int K = 10;\n");
+        builder.append("int g = 1;\n");
+        for (function = 0; function < functions; ++function) {
+            function();
+        }
+        builder.append("int main() {\n");
+        builder.append("    int r = 0;\n");
+        if (functions > 0) {
+            builder.append("    r = f").append(functions - 1).append("(1, 2);\n");
+        }
+        builder.append("    print(\"result\", r);\n");
+        builder.append("    return 0;\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private void function() {
+        builder.append("/* function ").append(function).append(" */\n");
+        builder.append("int f").append(function).append("(int a, int b) {\n");
+        // x 的初值表达式只能用到之前声明的变量
+        builder.append("    int y = b, z = 0, x = ").append(expression(VARIABLES.length - 1)).append(";\n");
+        statements(depth, 1);
+        builder.append("    return x + y - z;\n");
+        builder.append("}\n");
+    }
+
+    // 每层两条简单语句加一条嵌套语句，源码长度随 depth 线性增长
+    private void statements(int depth, int indent) {
+        simpleStatement(indent);
+        simpleStatement(indent);
+        if (depth == 0) {
+            return;
+        }
+        if (random.nextBoolean()) {
+            indent(indent).append("if (").append(condition()).append(") {\n");
+            statements(depth - 1, indent + 1);
+            indent(indent).append("} else {\n");
+            simpleStatement(indent + 1);
+            indent(indent).append("}\n");
+        } else {
+            indent(indent).append("while (z < ").append(1 + random.nextInt(9)).append(") {\n");
+            indent(indent + 1).append("z = z + 1;\n");
+            statements(depth - 1, indent + 1);
+            indent(indent).append("}\n");
+        }
+    }
+
+    private void simpleStatement(int indent) {
+        switch (random.nextInt(4)) {
+            case 0:
+                indent(indent).append("// print\n");
+                indent(indent).append("print(\"x = \", ").append(expression()).append(");\n");
+                break;
+            case 1:
+                if (function > 0) {
+                    indent(indent).append("y = f").append(random.nextInt(function)).append('(')
+                            .append(expression()).append(", ").append(operand()).append(");\n");
+                } else {
+                    indent(indent).append(random.nextBoolean() ? "x" : "y").append(" = ").append(expression()).append(";\n");
+                }
+                break;
+            default:
+                indent(indent).append(random.nextBoolean() ? "x" : "y").append(" = ").append(expression()).append(";\n");
+                break;
+        }
+    }
+
+    private String condition() {
+        String[] relations = {"<", "<=", ">", ">=", "==", "!="};
+        return expression() + " " + relations[random.nextInt(relations.length)] + " " + operand();
+    }
+
+    private String expression() {
+        return expression(VARIABLES.length);
+    }
+
+    // 操作数只从前 variables 个变量中选
+    private String expression(int variables) {
+        StringBuilder expression = new StringBuilder(operand(variables));
+        int operands = 1 + random.nextInt(3);
+        for (int i = 0; i < operands; ++i) {
+            expression.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ').append(operand(variables));
+        }
+        if (random.nextInt(4) == 0) {
+            expression.append(" / ").append(1 + random.nextInt(100));
+        }
+        return expression.toString();
+    }
+
+    private String operand() {
+        return operand(VARIABLES.length);
+    }
+
+    private String operand(int variables) {
+        if (random.nextDouble() >= literalDensity) {
+            return VARIABLES[random.nextInt(variables)];
+        }
+        switch (random.nextInt(4)) {
+            case 0:
+                return "0x" + Integer.toHexString(random.nextInt(0x10000)).toUpperCase();
+            case 1:
+                return "'" + (char) ('a' + random.nextInt(26)) + "'";
+            case 2:
+                return "K";
+            default:
+                return Integer.toString(random.nextInt(100000));
+        }
+    }
+
+    private StringBuilder indent(int indent) {
+        for (int i = 0; i < indent; ++i) {
+            builder.append("    ");
+        }
+        return builder;
+    }
+
+    // 把生成的程序写到文件，便于单独用 cc0 编译检查
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("用法: CorpusGenerator functions depth literalDensity file");
+            return;
+        }
+        String source = generate(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Double.parseDouble(args[2]));
+        Files.write(Paths.get(args[3]), source.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,144 @@
+package Benchmark;
+
+import SyntaxAnalyzer.SyntaxAnalyzer;
+import WordAnalyzer.WordAnalyzer;
+import WordAnalyzer.WordException;
+import WordAnalyzer.WordSymbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// 编译器前端各阶段的吞吐量，输入由 CorpusGenerator 生成
+// 输出写到空设备，只计生成文本和目标文件的开销
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+    @Param({"100", "1000"})
+    public int functions;
+
+    @Param({"2", "6"})
+    public int depth;
+
+    @Param({"0.2", "0.8"})
+    public double literalDensity;
+
+    private ByteBuffer source;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = CorpusGenerator.generate(functions, depth, literalDensity).getBytes(StandardCharsets.US_ASCII);
+        source = ByteBuffer.allocateDirect(bytes.length);
+        source.put(bytes).flip();
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    private SyntaxAnalyzer syntaxAnalyzer() {
+        return new SyntaxAnalyzer(new WordAnalyzer(source.duplicate()));
+    }
+
+    private SyntaxAnalyzer syntaxAnalyzer(int optimization) {
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new WordAnalyzer(source.duplicate()));
+        syntaxAnalyzer.setOptimization(optimization);
+        return syntaxAnalyzer;
+    }
+
+    @Benchmark
+    public int lex() throws WordException {
+        WordAnalyzer wordAnalyzer = new WordAnalyzer(source.duplicate());
+        int tokens = 0;
+        while (wordAnalyzer.getsym() != WordSymbol.EOF) {
+            ++tokens;
+        }
+        return tokens;
+    }
+
+    // 换成表驱动之前手写的扫描器，与 lex 对比
+    @Benchmark
+    public int lexHandWritten() throws WordException {
+        HandWrittenLexer lexer = new HandWrittenLexer(source.duplicate());
+        int tokens = 0;
+        while (lexer.getsym() != WordSymbol.EOF) {
+            ++tokens;
+        }
+        return tokens;
+    }
+
+    // 经过语法树和中间代码生成指令，再做窥孔优化
+    @Benchmark
+    public boolean lexParse() {
+        return syntaxAnalyzer().analyze(false);
+    }
+
+    // -O1，不做窥孔优化
+    @Benchmark
+    public boolean lexParseNoPeephole() {
+        return syntaxAnalyzer(1).analyze(false);
+    }
+
+    // -O0，边分析边生成指令
+    @Benchmark
+    public boolean lexParseDirect() {
+        return syntaxAnalyzer(0).analyze(false);
+    }
+
+    // -j，各个函数在线程池中并行分析、生成指令，至少两个线程，单核机器上测的是并行的额外开销
+    @Benchmark
+    public boolean lexParseParallel() {
+        SyntaxAnalyzer syntaxAnalyzer = syntaxAnalyzer();
+        syntaxAnalyzer.setThreads(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        return syntaxAnalyzer.analyze(false);
+    }
+
+    @Benchmark
+    public void compileText() {
+        syntaxAnalyzer().start(true);
+    }
+
+    @Benchmark
+    public void compileBinary() {
+        syntaxAnalyzer().start(false);
+    }
+
+    @Benchmark
+    public void compileBinaryDirect() {
+        syntaxAnalyzer(0).start(false);
+    }
+
+    // 不打包也可以直接运行，默认带上 gc 分析器报告每次操作分配的字节数
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FrontEndBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
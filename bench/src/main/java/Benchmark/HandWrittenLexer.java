@@ -0,0 +1,363 @@
+package Benchmark;
+
+import WordAnalyzer.Identifiers;
+import WordAnalyzer.WordError;
+import WordAnalyzer.WordException;
+import WordAnalyzer.WordSymbol;
+
+import java.nio.ByteBuffer;
+
+// 换成表驱动之前手写的扫描器，只用来与 WordAnalyzer.getsym 比较性能
+// 对正确的源码得到的单词、标识符编号和字面量的值与 getsym 相同，出错时只报告错误种类
+class HandWrittenLexer {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position = 0;
+    private int tokenStart = 0;
+    private char ch;
+    private final Identifiers identifiers = new Identifiers();
+    private int value;
+
+    HandWrittenLexer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    int getValue() {
+        return value;
+    }
+
+    private char charAt(int index) {
+        if (index < limit) {
+            return (char) (buffer.get(index) & 0xff);
+        }
+        return 65535;
+    }
+
+    private void read() {
+        ch = charAt(position++);
+    }
+
+    private void unread() {
+        --position;
+    }
+
+    private static WordException error(WordError error) {
+        return new WordException(error);
+    }
+
+    // 先按长度再按首字母分派，最多比较一个关键字
+    private WordSymbol isReserved(int hash) {
+        int length = position - tokenStart;
+        switch (length) {
+            case 2:
+                switch (charAt(tokenStart)) {
+                    case 'i':
+                        return reserved("if", WordSymbol.If, hash);
+                    case 'd':
+                        return reserved("do", WordSymbol.Do, hash);
+                }
+                break;
+            case 3:
+                switch (charAt(tokenStart)) {
+                    case 'i':
+                        return reserved("int", WordSymbol.Int, hash);
+                    case 'f':
+                        return reserved("for", WordSymbol.For, hash);
+                }
+                break;
+            case 4:
+                switch (charAt(tokenStart)) {
+                    case 'v':
+                        return reserved("void", WordSymbol.Void, hash);
+                    case 'c':
+                        if (charAt(tokenStart + 1) == 'h') {
+                            return reserved("char", WordSymbol.Char, hash);
+                        }
+                        return reserved("case", WordSymbol.Case, hash);
+                    case 'e':
+                        return reserved("else", WordSymbol.Else, hash);
+                    case 's':
+                        return reserved("scan", WordSymbol.Scan, hash);
+                }
+                break;
+            case 5:
+                switch (charAt(tokenStart)) {
+                    case 'c':
+                        return reserved("const", WordSymbol.Const, hash);
+                    case 'w':
+                        return reserved("while", WordSymbol.While, hash);
+                    case 'b':
+                        return reserved("break", WordSymbol.Break, hash);
+                    case 'p':
+                        return reserved("print", WordSymbol.Print, hash);
+                }
+                break;
+            case 6:
+                switch (charAt(tokenStart)) {
+                    case 'd':
+                        return reserved("double", WordSymbol.Double, hash);
+                    case 's':
+                        if (charAt(tokenStart + 1) == 't') {
+                            return reserved("struct", WordSymbol.Struct, hash);
+                        }
+                        return reserved("switch", WordSymbol.Switch, hash);
+                    case 'r':
+                        return reserved("return", WordSymbol.Return, hash);
+                }
+                break;
+            case 7:
+                return reserved("default", WordSymbol.Default, hash);
+            case 8:
+                return reserved("continue", WordSymbol.Continue, hash);
+        }
+        return identifier(hash);
+    }
+
+    private WordSymbol reserved(String reserve, WordSymbol symbol, int hash) {
+        for (int i = 0; i < reserve.length(); ++i) {
+            if (charAt(tokenStart + i) != reserve.charAt(i)) {
+                return identifier(hash);
+            }
+        }
+        return symbol;
+    }
+
+    private WordSymbol identifier(int hash) {
+        value = identifiers.intern(buffer, tokenStart, position - tokenStart, hash);
+        return WordSymbol.Identifier;
+    }
+
+    // 跳过空白和注释，结束时 ch 为下一个单词的第一个字符
+    private void skip() throws WordException {
+        while (true) {
+            while (ch == ' ' || ch == '\r' || ch == '\n' || ch == '\t') {
+                read();
+            }
+            if (ch != '/' || (charAt(position) != '/' && charAt(position) != '*')) {
+                return;
+            }
+            read();
+            if (ch == '/') {
+                while (ch != '\n') {
+                    if (ch == 65535) {
+                        return;
+                    }
+                    read();
+                }
+            } else {
+                read();
+                while (true) {
+                    if (ch == 65535) {
+                        throw error(WordError.UnfinishedComment);
+                    } else if (ch == '*') {
+                        read();
+                        if (ch == '/') {
+                            break;
+                        }
+                    } else {
+                        read();
+                    }
+                }
+            }
+            read();
+        }
+    }
+
+    WordSymbol getsym() throws WordException {
+        read();
+        skip();
+        tokenStart = position - 1;
+        value = 0;
+        if (isLetter()) {
+            int hash = 0;
+            while (isLetter() || isDigit()) {
+                hash = 31 * hash + ch;
+                read();
+            }
+            unread();
+            return isReserved(hash);
+        } else if (isDigit()) {
+            long number = 0;
+            if (ch == '0') {
+                read();
+                if (isDigit()) {
+                    throw error(WordError.NumberStartFromZero);
+                } else if (ch == 'x' || ch == 'X') {
+                    read();
+                    if (!isHexadecimalDigit()) {
+                        throw error(WordError.InvalidHexNumber);
+                    }
+                    while (isHexadecimalDigit()) {
+                        if (number <= Integer.MAX_VALUE) {
+                            number = number * 16 + hexValue(ch);
+                        }
+                        read();
+                    }
+                    if (isLetter()) {
+                        throw error(WordError.InvalidHexNumber);
+                    }
+                } else if (isLetter()) {
+                    throw error(WordError.InvalidIdentifier);
+                }
+            } else {
+                while (isDigit()) {
+                    // 超出范围后不再累加，避免 long 也溢出
+                    if (number <= Integer.MAX_VALUE) {
+                        number = number * 10 + (ch - '0');
+                    }
+                    read();
+                }
+                if (isLetter()) {
+                    throw error(WordError.InvalidIdentifier);
+                }
+            }
+            unread();
+            if (number > Integer.MAX_VALUE) {
+                throw error(WordError.NumberOutOfRange);
+            }
+            value = (int) number;
+            return WordSymbol.UnsignedInt;
+        } else if (ch == '"') {
+            read();
+            while (ch != '"') {
+                if (ch == '\\') {
+                    read();
+                    if (ch == 'x') {
+                        read();
+                        if (!isHexadecimalDigit()) {
+                            throw error(WordError.InvalidStringLiteral);
+                        }
+                        read();
+                        if (!isHexadecimalDigit()) {
+                            throw error(WordError.InvalidStringLiteral);
+                        }
+                    } else if (!isEscapeChar()) {
+                        throw error(WordError.InvalidEscape);
+                    }
+                } else if (ch == 65535 || (ch != '\t' && (ch <= 31 || ch >= 127))) {
+                    throw error(WordError.InvalidStringLiteral);
+                }
+                read();
+            }
+            return WordSymbol.StringLiteral;
+        } else if (ch == '\'') {
+            read();
+            if (ch == '\\') {
+                read();
+                if (ch == 'x') {
+                    read();
+                    if (!isHexadecimalDigit()) {
+                        throw error(WordError.InvalidCharLiteral);
+                    }
+                    read();
+                    if (!isHexadecimalDigit()) {
+                        throw error(WordError.InvalidCharLiteral);
+                    }
+                } else if (!isEscapeChar()) {
+                    throw error(WordError.InvalidEscape);
+                }
+            } else if (ch == '\'' || ch == 65535 || (ch != '\t' && (ch <= 31 || ch >= 127))) {
+                throw error(WordError.InvalidCharLiteral);
+            }
+            read();
+            if (ch != '\'') {
+                throw error(WordError.InvalidCharLiteral);
+            }
+            value = charValue(tokenStart + 1);
+            return WordSymbol.CharLiteral;
+        }
+        switch (ch) {
+            case '=':
+                return follow(WordSymbol.Equal, WordSymbol.Assign);
+            case '!':
+                if (charAt(position) != '=') {
+                    throw error(WordError.UnknownSeparator);
+                }
+                read();
+                return WordSymbol.NotEqual;
+            case '<':
+                return follow(WordSymbol.LessOrEqual, WordSymbol.Less);
+            case '>':
+                return follow(WordSymbol.GreaterOrEqual, WordSymbol.Greater);
+            case '+':
+                return WordSymbol.Plus;
+            case '-':
+                return WordSymbol.Minus;
+            case '*':
+                return WordSymbol.Multi;
+            case '(':
+                return WordSymbol.LeftParenthesis;
+            case ')':
+                return WordSymbol.RightParenthesis;
+            case '{':
+                return WordSymbol.LeftBrace;
+            case '}':
+                return WordSymbol.RightBrace;
+            case ',':
+                return WordSymbol.Comma;
+            case ';':
+                return WordSymbol.Semicolon;
+            case '/':
+                return WordSymbol.Div;
+            case 65535:
+                return WordSymbol.EOF;
+            default:
+                return WordSymbol.Unknown;
+        }
+    }
+
+    // 下一个字符是 = 时为双字符运算符
+    private WordSymbol follow(WordSymbol withEqual, WordSymbol single) {
+        if (charAt(position) == '=') {
+            read();
+            return withEqual;
+        }
+        return single;
+    }
+
+    private char charValue(int index) {
+        char c = charAt(index);
+        if (c != '\\') {
+            return c;
+        }
+        c = charAt(index + 1);
+        switch (c) {
+            case 'x':
+                return (char) (hexValue(charAt(index + 2)) * 16 + hexValue(charAt(index + 3)));
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return c;
+        }
+    }
+
+    private static int hexValue(char c) {
+        if (c <= '9') {
+            return c - '0';
+        } else if (c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return c - 'a' + 10;
+    }
+
+    private boolean isEscapeChar() {
+        return ch == '\\' || ch == '\'' || ch == '"' || ch == 'n' || ch == 'r' || ch == 't';
+    }
+
+    private boolean isHexadecimalDigit() {
+        return isDigit() || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+    }
+
+    private boolean isLetter() {
+        return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || ch == '_';
+    }
+
+    private boolean isDigit() {
+        return ch >= '0' && ch <= '9';
+    }
+}
@@ -0,0 +1,60 @@
+package Benchmark;
+
+import InstructionWriter.InstructionWriter;
+import SyntaxAnalyzer.CompilationContext;
+import SyntaxAnalyzer.SyntaxAnalyzer;
+import WordAnalyzer.WordAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// 对 CorpusGenerator 生成的一批源文件分别用各个优化级别编译，统计指令总数和目标文件大小
+// "-O1 删函数" 是 -O1 的结果只删去 main 用不到的函数，与 -O2 相比得到窥孔优化单独去掉的指令
+// 用法: OptimizationReport [sources]
+public class OptimizationReport {
+    private static final String[] NAMES = {"-O0", "-O1", "-O1 删函数", "-O2"};
+
+    // 第 i 项依次是指令条数和目标文件字节数
+    private static long[] compile(byte[] source, int level) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(source.length);
+        buffer.put(source).flip();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompilationContext context = new CompilationContext(Channels.newChannel(output), new PrintStream(new ByteArrayOutputStream()));
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new WordAnalyzer(buffer), context);
+        syntaxAnalyzer.setOptimization(level == 3 ? 2 : Math.min(level, 1));
+        if (!syntaxAnalyzer.analyze(false)) {
+            throw new IllegalStateException("生成的源文件有错误");
+        }
+        InstructionWriter instructionWriter = context.getInstructionWriter();
+        if (level == 2) {
+            instructionWriter.removeUnusedFunctions();
+        }
+        instructionWriter.assemble();
+        return new long[]{instructionWriter.instructionCount(), output.size()};
+    }
+
+    public static void main(String[] args) {
+        int sources = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long[][] totals = new long[NAMES.length][2];
+        for (int i = 0; i < sources; ++i) {
+            Random random = new Random(i);
+            String source = new CorpusGenerator(1 + random.nextInt(40), 1 + random.nextInt(4), random.nextDouble(), i).generate();
+            byte[] bytes = source.getBytes(StandardCharsets.US_ASCII);
+            for (int level = 0; level < NAMES.length; ++level) {
+                long[] result = compile(bytes, level);
+                totals[level][0] += result[0];
+                totals[level][1] += result[1];
+            }
+        }
+        System.out.println(sources + " 个源文件的指令总数和目标文件大小");
+        for (int level = 0; level < NAMES.length; ++level) {
+            System.out.printf("%-10s %10d 条 %10d 字节%n", NAMES[level], totals[level][0], totals[level][1]);
+        }
+        long peephole = totals[2][0] - totals[3][0];
+        System.out.printf("窥孔优化去掉 %d 条，占删函数后的 %.1f%%%n", peephole, 100.0 * peephole / totals[2][0]);
+    }
+}
@@ -0,0 +1,8 @@
+package InstructionWriter;
+
+// 目标文件的某个字段超出了格式允许的范围
+public class AssembleException extends Exception {
+    public AssembleException(String message) {
+        super(message);
+    }
+}
@@ -1,324 +1,199 @@
 package InstructionWriter;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 
+// 二进制目标文件的输出，先算出每段的大小，编码到各自的缓冲区，再一次聚集写入通道
+// 第一段是文件头和常量表，第二段是 .start，之后每个函数一段
+// 版本 1 的计数、下标、长度和跳转目标都是 2 字节，超出时报错；宽格式（版本 2）把这些 2 字节的字段都改为 4 字节
 public class Assembler {
+    private static final int MAX_SHORT = 0xffff;
 
-    private BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(System.out);
+    private final boolean wide;
 
-    public void output(ArrayList<String> constants, ArrayList<String> start, ArrayList<String> functions, ArrayList<ArrayList<String>> functionList) {
-        try {
-            init();
-            constants(constants);
-            start(start);
-            functions(functions, functionList);
-            bufferedOutputStream.close();
-        } catch (IOException e) {
-            System.out.println("不能写入文件！");
+    public Assembler() {
+        this(false);
+    }
+
+    public Assembler(boolean wide) {
+        this.wide = wide;
+    }
+
+    // 先全部编码，字段越界时在写文件之前报错
+    public ByteBuffer[] encode(ConstantPool constants, InstructionBuffer start, ArrayList<int[]> functions,
+                               ArrayList<InstructionBuffer> functionList) throws AssembleException {
+        ByteBuffer[] buffers = new ByteBuffer[2 + functions.size()];
+        buffers[0] = constants(constants);
+        buffers[1] = start(start, functions.size());
+        for (int i = 0; i < functions.size(); ++i) {
+            buffers[2 + i] = function(i, functions.get(i), functionList.get(i));
+        }
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
         }
+        return buffers;
     }
 
-    private void init() throws IOException {
-        byte[] magic = {0x43, 0x30, 0x3A, 0x29};
-        byte[] version = {0, 0, 0, 1};
-        bufferedOutputStream.write(magic);
-        bufferedOutputStream.write(version);
+    public void write(ByteBuffer[] buffers, WritableByteChannel channel) throws IOException {
+        if (channel instanceof GatheringByteChannel) {
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            int offset = 0;
+            while (offset < buffers.length) {
+                gathering.write(buffers, offset, buffers.length - offset);
+                while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+                    ++offset;
+                }
+            }
+        } else {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
     }
 
-    private void constants(ArrayList<String> constants) throws IOException {
+    // 文件头和常量表
+    private ByteBuffer constants(ConstantPool constants) throws AssembleException {
         int size = constants.size();
-        bufferedOutputStream.write(size / 0x100);
-        bufferedOutputStream.write(size % 0x100);
-        for (String string : constants) {
-            switch (string.charAt(0)) {
-                case 'S':
-                    bufferedOutputStream.write(0);
-                    int length = string.length() - 4;
-                    bufferedOutputStream.write(length / 0x100);
-                    bufferedOutputStream.write(length % 0x100);
-                    bufferedOutputStream.write(string.substring(3, string.length() - 1).getBytes());
+        byte[][] strings = new byte[size][];
+        int capacity = 4 + 4 + shortSize();
+        for (int i = 0; i < size; ++i) {
+            switch (constants.type(i)) {
+                case String:
+                    strings[i] = constants.string(i).getBytes();
+                    capacity += 1 + shortSize() + strings[i].length;
                     break;
-                case 'I':
-                    System.out.println("Error!");
-                    bufferedOutputStream.write(1);
+                case Int:
+                    capacity += 1 + 4;
                     break;
-                case 'D':
-                    System.out.println("Error!");
-                    bufferedOutputStream.write(2);
+                case Double:
+                    capacity += 1 + 8;
                     break;
-                default:
-                    System.out.println("Error!");
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(new byte[]{0x43, 0x30, 0x3A, 0x29});
+        buffer.put(new byte[]{0, 0, 0, (byte) (wide ? 2 : 1)});
+        putShort(buffer, size, "常量个数");
+        for (int i = 0; i < size; ++i) {
+            ConstantType type = constants.type(i);
+            buffer.put((byte) type.code);
+            switch (type) {
+                case String:
+                    // 长度按字符数写
+                    int length = constants.string(i).length();
+                    if (!fits(length)) {
+                        throw overflow("常量 " + i + " 的长度", length);
+                    }
+                    putShort(buffer, length);
+                    buffer.put(strings[i]);
+                    break;
+                case Int:
+                    buffer.putInt(constants.intValue(i));
+                    break;
+                case Double:
+                    buffer.putLong(Double.doubleToLongBits(constants.doubleValue(i)));
                     break;
             }
         }
+        return buffer;
     }
 
-    private void start(ArrayList<String> start) throws IOException {
-        int size = start.size();
-        bufferedOutputStream.write(size / 0x100);
-        bufferedOutputStream.write(size % 0x100);
-        for (String string : start) {
-            instructions(string);
+    // .start 和其后的函数个数
+    private ByteBuffer start(InstructionBuffer start, int functions) throws AssembleException {
+        ByteBuffer buffer = ByteBuffer.allocate(shortSize() + size(start) + shortSize());
+        putShort(buffer, start.size(), ".start 的指令条数");
+        instructions(buffer, start, ".start");
+        putShort(buffer, functions, "函数个数");
+        return buffer;
+    }
+
+    private ByteBuffer function(int index, int[] function, InstructionBuffer instructions) throws AssembleException {
+        ByteBuffer buffer = ByteBuffer.allocate(shortSize() * 4 + size(instructions));
+        // 名字下标、参数大小、层次
+        putShort(buffer, function[1], ".F" + index + " 的名字下标");
+        putShort(buffer, function[2], ".F" + index + " 的参数大小");
+        putShort(buffer, function[3], ".F" + index + " 的层次");
+        putShort(buffer, instructions.size(), ".F" + index + " 的指令条数");
+        instructions(buffer, instructions, ".F" + index);
+        return buffer;
+    }
+
+    // 指令编码后的字节数
+    private int size(InstructionBuffer instructions) {
+        int size = 0;
+        for (int i = 0; i < instructions.size(); ++i) {
+            Instructions instruction = instructions.get(i);
+            size += 1 + width(instruction.firstWidth) + width(instruction.secondWidth);
         }
+        return size;
     }
 
-    private void functions(ArrayList<String> functions, ArrayList<ArrayList<String>> functionList) throws IOException {
-        int functionsSize = functions.size();
-        bufferedOutputStream.write(functionsSize / 0x100);
-        bufferedOutputStream.write(functionsSize % 0x100);
-        for (int i = 0; i < functions.size(); ++i) {
-            String string = functions.get(i);
-            String[] strings = string.split(" ");
-            for (int j = 1; j < 4; ++j) {
-                bufferedOutputStream.write(Integer.parseInt(strings[j]) / 0x100);
-                bufferedOutputStream.write(Integer.parseInt(strings[j]) % 0x100);
-            }
-            ArrayList<String> function = functionList.get(i);
-            int size = function.size();
-            bufferedOutputStream.write(size / 0x100);
-            bufferedOutputStream.write(size % 0x100);
-            for (String s : function) {
-                instructions(s);
+    // 操作码和操作数的宽度都由 Instructions 给出
+    private void instructions(ByteBuffer buffer, InstructionBuffer instructions, String name) throws AssembleException {
+        for (int i = 0; i < instructions.size(); ++i) {
+            Instructions instruction = instructions.get(i);
+            buffer.put((byte) instruction.code);
+            if (instruction.operands > 0) {
+                put(buffer, instructions.x(i), instruction.firstWidth, name, i);
+                if (instruction.operands > 1) {
+                    put(buffer, instructions.y(i), instruction.secondWidth, name, i);
+                }
             }
         }
     }
 
-    private void instructions(String string) throws IOException {
-        String[] strings = string.split("[, ]");
-        if (strings.length == 1) {
-            switch (strings[0]) {
-                case "nop":
-                    bufferedOutputStream.write(0x00);
-                    break;
-                case "pop":
-                    bufferedOutputStream.write(0x04);
-                    break;
-                case "pop2":
-                    bufferedOutputStream.write(0x05);
-                    break;
-                case "dup":
-                    bufferedOutputStream.write(0x07);
-                    break;
-                case "dup2":
-                    bufferedOutputStream.write(0x08);
-                    break;
-                case "new":
-                    bufferedOutputStream.write(0x0b);
-                    break;
-                case "iload":
-                    bufferedOutputStream.write(0x10);
-                    break;
-                case "dload":
-                    bufferedOutputStream.write(0x11);
-                    break;
-                case "aload":
-                    bufferedOutputStream.write(0x12);
-                    break;
-                case "iaload":
-                    bufferedOutputStream.write(0x18);
-                    break;
-                case "daload":
-                    bufferedOutputStream.write(0x19);
-                    break;
-                case "aaload":
-                    bufferedOutputStream.write(0x1a);
-                    break;
-                case "istore":
-                    bufferedOutputStream.write(0x20);
-                    break;
-                case "dstore":
-                    bufferedOutputStream.write(0x21);
-                    break;
-                case "astore":
-                    bufferedOutputStream.write(0x22);
-                    break;
-                case "iastore":
-                    bufferedOutputStream.write(0x28);
-                    break;
-                case "dastore":
-                    bufferedOutputStream.write(0x29);
-                    break;
-                case "aastore":
-                    bufferedOutputStream.write(0x2a);
-                    break;
-                case "iadd":
-                    bufferedOutputStream.write(0x30);
-                    break;
-                case "dadd":
-                    bufferedOutputStream.write(0x31);
-                    break;
-                case "isub":
-                    bufferedOutputStream.write(0x34);
-                    break;
-                case "dsub":
-                    bufferedOutputStream.write(0x35);
-                    break;
-                case "imul":
-                    bufferedOutputStream.write(0x38);
-                    break;
-                case "dmul":
-                    bufferedOutputStream.write(0x39);
-                    break;
-                case "idiv":
-                    bufferedOutputStream.write(0x3c);
-                    break;
-                case "ddiv":
-                    bufferedOutputStream.write(0x3d);
-                    break;
-                case "ineg":
-                    bufferedOutputStream.write(0x40);
-                    break;
-                case "dneg":
-                    bufferedOutputStream.write(0x41);
-                    break;
-                case "icmp":
-                    bufferedOutputStream.write(0x44);
-                    break;
-                case "dcmp":
-                    bufferedOutputStream.write(0x45);
-                    break;
-                case "i2d":
-                    bufferedOutputStream.write(0x60);
-                    break;
-                case "d2i":
-                    bufferedOutputStream.write(0x61);
-                    break;
-                case "i2c":
-                    bufferedOutputStream.write(0x62);
-                    break;
-                case "ret":
-                    bufferedOutputStream.write(0x88);
-                    break;
-                case "iret":
-                    bufferedOutputStream.write(0x89);
-                    break;
-                case "dret":
-                    bufferedOutputStream.write(0x8a);
-                    break;
-                case "aret":
-                    bufferedOutputStream.write(0x8b);
-                    break;
-                case "iprint":
-                    bufferedOutputStream.write(0xa0);
-                    break;
-                case "dprint":
-                    bufferedOutputStream.write(0xa1);
-                    break;
-                case "cprint":
-                    bufferedOutputStream.write(0xa2);
-                    break;
-                case "sprint":
-                    bufferedOutputStream.write(0xa3);
-                    break;
-                case "printl":
-                    bufferedOutputStream.write(0xaf);
-                    break;
-                case "iscan":
-                    bufferedOutputStream.write(0xb0);
-                    break;
-                case "dscan":
-                    bufferedOutputStream.write(0xb1);
-                    break;
-                case "cscan":
-                    bufferedOutputStream.write(0xb2);
-                    break;
-                default:
-                    System.out.println(strings[0]);
-                    System.out.println("Instruction not found!");
-            }
-        } else if (strings.length == 2) {
-            switch (strings[0]) {
-                case "bipush":
-                    bufferedOutputStream.write(0x01);
-                    bufferedOutputStream.write(Integer.parseInt(strings[1]));
-                    break;
-                case "ipush":
-                    bufferedOutputStream.write(0x02);
-                    write4(strings[1]);
-                    break;
-                case "popn":
-                    bufferedOutputStream.write(0x06);
-                    write4(strings[1]);
-                    break;
-                case "loadc":
-                    bufferedOutputStream.write(0x09);
-                    write2(strings[1]);
-                    break;
-                case "snew":
-                    bufferedOutputStream.write(0x0c);
-                    write4(strings[1]);
-                    break;
-                case "jmp":
-                    bufferedOutputStream.write(0x70);
-                    write2(strings[1]);
-                    break;
-                case "je":
-                    bufferedOutputStream.write(0x71);
-                    write2(strings[1]);
-                    break;
-                case "jne":
-                    bufferedOutputStream.write(0x72);
-                    write2(strings[1]);
-                    break;
-                case "jl":
-                    bufferedOutputStream.write(0x73);
-                    write2(strings[1]);
-                    break;
-                case "jge":
-                    bufferedOutputStream.write(0x74);
-                    write2(strings[1]);
-                    break;
-                case "jg":
-                    bufferedOutputStream.write(0x75);
-                    write2(strings[1]);
-                    break;
-                case "jle":
-                    bufferedOutputStream.write(0x76);
-                    write2(strings[1]);
-                    break;
-                case "call":
-                    bufferedOutputStream.write(0x80);
-                    write2(strings[1]);
-                    break;
-                default:
-                    System.out.println("Instruction not found!");
-            }
-        } else {
-            switch (strings[0]) {
-                case "loada":
-                    bufferedOutputStream.write(0x0a);
-                    write2(strings[1]);
-                    write4(strings[2]);
-                    break;
-                default:
-                    System.out.println("Instruction not found!");
-            }
+    // 高位在前，只写低 width 个字节
+    private void put(ByteBuffer buffer, int num, int width, String name, int index) throws AssembleException {
+        switch (width) {
+            case 1:
+                buffer.put((byte) num);
+                break;
+            case 2:
+                if (!fits(num)) {
+                    throw overflow(name + " 第 " + index + " 条指令的操作数", num);
+                }
+                putShort(buffer, num);
+                break;
+            default:
+                buffer.putInt(num);
+                break;
         }
     }
 
-    private void write2(String string) throws IOException {
-        int num;
-        if (string.length() > 2 && string.charAt(1) == 'x') {
-            num = Integer.parseInt(string.substring(2), 16);
-        } else {
-            num = Integer.parseInt(string);
+    private int shortSize() {
+        return wide ? 4 : 2;
+    }
+
+    private int width(int width) {
+        return wide && width == 2 ? 4 : width;
+    }
+
+    private boolean fits(int num) {
+        return wide || (num & ~MAX_SHORT) == 0;
+    }
+
+    // 版本 1 中占 2 字节的字段，field 是越界时报告的字段名
+    private void putShort(ByteBuffer buffer, int num, String field) throws AssembleException {
+        if (!fits(num)) {
+            throw overflow(field, num);
         }
-        bufferedOutputStream.write(num / 0x100);
-        bufferedOutputStream.write(num % 0x100);
+        putShort(buffer, num);
     }
 
-    private void write4(String string) throws IOException {
-        int num;
-        if (string.length() > 2 && string.charAt(1) == 'x') {
-            num = Integer.parseInt(string.substring(2), 16);
+    private void putShort(ByteBuffer buffer, int num) {
+        if (wide) {
+            buffer.putInt(num);
         } else {
-            num = Integer.parseInt(string);
+            buffer.putShort((short) num);
         }
-        bufferedOutputStream.write(num / 0x1000000);
-        bufferedOutputStream.write(num / 0x10000 % 0x100);
-        bufferedOutputStream.write(num / 0x100 % 0x100);
-        bufferedOutputStream.write(num % 0x100);
+    }
+
+    private static AssembleException overflow(String field, int num) {
+        return new AssembleException(field + " " + num + " 超出了 2 字节的范围，请用 --wide 输出宽格式的目标文件");
     }
 }
@@ -0,0 +1,66 @@
+package InstructionWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 基本块：只能从第一条指令进入，只在最后一条指令离开，下标都是建图时原指令序列中的
+public class BasicBlock {
+    final int index; // 建图时的编号，删除或调整顺序后不变
+    final int start;
+    final int end;
+    BasicBlock target; // 最后一条是跳转时跳到的块，跳到函数末尾时为 null
+    BasicBlock next; // 顺序执行到的块，落到函数末尾时为 null
+    boolean fallsThrough; // 最后一条不是 jmp 或返回指令
+    final ArrayList<BasicBlock> predecessors = new ArrayList<>();
+    final ArrayList<BasicBlock> successors = new ArrayList<>();
+    BasicBlock dominator; // 直接支配者，入口块和执行不到的块为 null
+    int order = -1; // 逆后序中的序号，执行不到时为 -1
+    int position; // 写回时在新序列中的起点
+
+    BasicBlock(int index, int start, int end) {
+        this.index = index;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    public BasicBlock getTarget() {
+        return target;
+    }
+
+    public BasicBlock getNext() {
+        return next;
+    }
+
+    public boolean fallsThrough() {
+        return fallsThrough;
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        return Collections.unmodifiableList(successors);
+    }
+
+    public BasicBlock getDominator() {
+        return dominator;
+    }
+
+    public boolean isReachable() {
+        return order >= 0;
+    }
+}
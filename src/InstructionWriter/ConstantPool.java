@@ -0,0 +1,57 @@
+package InstructionWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// 常量表，相同类型、相同值的常量只保存一份，按值查找下标
+public class ConstantPool {
+    private final ArrayList<ConstantType> types = new ArrayList<>();
+    private final ArrayList<Object> values = new ArrayList<>(); // String、Integer 或 Double
+    private final HashMap<Object, Integer> indexes = new HashMap<>();
+
+    public int addString(String value) {
+        return add(ConstantType.String, value);
+    }
+
+    public int addInt(int value) {
+        return add(ConstantType.Int, value);
+    }
+
+    // Double.equals 按位比较，0.0 和 -0.0 是两个常量
+    public int addDouble(double value) {
+        return add(ConstantType.Double, value);
+    }
+
+    // 三种值的类不同，作为键不会相互冲突
+    private int add(ConstantType type, Object value) {
+        Integer index = indexes.get(value);
+        if (index != null) {
+            return index;
+        }
+        index = types.size();
+        types.add(type);
+        values.add(value);
+        indexes.put(value, index);
+        return index;
+    }
+
+    public int size() {
+        return types.size();
+    }
+
+    public ConstantType type(int index) {
+        return types.get(index);
+    }
+
+    public String string(int index) {
+        return (String) values.get(index);
+    }
+
+    public int intValue(int index) {
+        return (Integer) values.get(index);
+    }
+
+    public double doubleValue(int index) {
+        return (Double) values.get(index);
+    }
+}
@@ -1,5 +1,14 @@
 package InstructionWriter;
 
+// 常量的类型，code 为目标文件中的类型码，tag 为文本汇编中的类型
 public enum ConstantType {
-    String, Double
+    String(0, 'S'), Int(1, 'I'), Double(2, 'D');
+
+    public final int code;
+    public final char tag;
+
+    ConstantType(int code, char tag) {
+        this.code = code;
+        this.tag = tag;
+    }
 }
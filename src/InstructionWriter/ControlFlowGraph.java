@@ -0,0 +1,253 @@
+package InstructionWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 一个函数的控制流图：在跳转目标处和跳转、返回指令之后切分基本块，记下前驱、后继和支配树
+// 块的指令留在建图时复制的数组中，store 按 getBlocks 中的顺序写回并重新计算跳转目标
+public class ControlFlowGraph {
+    private final Instructions[] instructions;
+    private final int[] xs;
+    private final int[] ys;
+    private final ArrayList<BasicBlock> blocks = new ArrayList<>(); // 写回时的顺序，入口块在最前
+
+    public ControlFlowGraph(InstructionBuffer code) {
+        int size = code.size();
+        instructions = new Instructions[size];
+        xs = new int[size];
+        ys = new int[size];
+        boolean[] leaders = new boolean[size + 1];
+        leaders[0] = true;
+        for (int i = 0; i < size; ++i) {
+            instructions[i] = code.get(i);
+            xs[i] = code.x(i);
+            ys[i] = code.y(i);
+            if (Peephole.isJump(instructions[i])) {
+                leaders[xs[i]] = true;
+            }
+            if (Peephole.isJump(instructions[i]) || isReturn(instructions[i])) {
+                leaders[i + 1] = true;
+            }
+        }
+        BasicBlock[] blockAt = new BasicBlock[size + 1]; // 从这条指令开始的块，函数末尾为 null
+        for (int i = 0; i < size; ) {
+            int end = i + 1;
+            while (end < size && !leaders[end]) {
+                ++end;
+            }
+            BasicBlock block = new BasicBlock(blocks.size(), i, end);
+            blocks.add(block);
+            blockAt[i] = block;
+            i = end;
+        }
+        for (BasicBlock block : blocks) {
+            Instructions last = instructions[block.end - 1];
+            if (Peephole.isJump(last)) {
+                block.target = blockAt[xs[block.end - 1]];
+                addEdge(block, block.target);
+            }
+            block.fallsThrough = last != Instructions.jmp && !isReturn(last);
+            if (block.fallsThrough) {
+                block.next = blockAt[block.end];
+                if (block.next != block.target) {
+                    addEdge(block, block.next);
+                }
+            }
+        }
+        computeDominators();
+    }
+
+    private static boolean isReturn(Instructions instructions) {
+        return instructions.ordinal() >= Instructions.ret.ordinal() && instructions.ordinal() <= Instructions.aret.ordinal();
+    }
+
+    private static void addEdge(BasicBlock from, BasicBlock to) {
+        if (to != null) {
+            from.successors.add(to);
+            to.predecessors.add(from);
+        }
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    // 没有指令时为 null
+    public BasicBlock entry() {
+        return blocks.isEmpty() ? null : blocks.get(0);
+    }
+
+    public Instructions get(BasicBlock block, int offset) {
+        return instructions[block.start + offset];
+    }
+
+    public int x(BasicBlock block, int offset) {
+        return xs[block.start + offset];
+    }
+
+    public int y(BasicBlock block, int offset) {
+        return ys[block.start + offset];
+    }
+
+    // 从入口出发的深度优先搜索，按逆后序编号，执行不到的块编号为 -1
+    private ArrayList<BasicBlock> reversePostorder() {
+        for (BasicBlock block : blocks) {
+            block.order = -1;
+        }
+        ArrayList<BasicBlock> postorder = new ArrayList<>();
+        if (blocks.isEmpty()) {
+            return postorder;
+        }
+        BasicBlock[] stack = new BasicBlock[blocks.size()];
+        int[] edges = new int[blocks.size()]; // 栈中每个块下一个要看的后继
+        boolean[] visited = new boolean[blocks.size()];
+        int depth = 0;
+        stack[depth++] = entry();
+        visited[entry().index] = true;
+        while (depth > 0) {
+            BasicBlock block = stack[depth - 1];
+            if (edges[depth - 1] < block.successors.size()) {
+                BasicBlock successor = block.successors.get(edges[depth - 1]++);
+                if (!visited[successor.index]) {
+                    visited[successor.index] = true;
+                    edges[depth] = 0;
+                    stack[depth++] = successor;
+                }
+            } else {
+                postorder.add(block);
+                --depth;
+            }
+        }
+        ArrayList<BasicBlock> order = new ArrayList<>(postorder.size());
+        for (int i = postorder.size() - 1; i >= 0; --i) {
+            BasicBlock block = postorder.get(i);
+            block.order = order.size();
+            order.add(block);
+        }
+        return order;
+    }
+
+    // Cooper、Harvey、Kennedy 的迭代算法，按逆后序反复求前驱直接支配者的公共祖先
+    private void computeDominators() {
+        ArrayList<BasicBlock> order = reversePostorder();
+        for (BasicBlock block : blocks) {
+            block.dominator = null;
+        }
+        if (order.isEmpty()) {
+            return;
+        }
+        BasicBlock entry = order.get(0);
+        entry.dominator = entry;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < order.size(); ++i) {
+                BasicBlock block = order.get(i);
+                BasicBlock dominator = null;
+                for (BasicBlock predecessor : block.predecessors) {
+                    if (predecessor.dominator != null) {
+                        dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+                    }
+                }
+                if (block.dominator != dominator) {
+                    block.dominator = dominator;
+                    changed = true;
+                }
+            }
+        }
+        entry.dominator = null;
+    }
+
+    private static BasicBlock intersect(BasicBlock a, BasicBlock b) {
+        while (a != b) {
+            while (a.order > b.order) {
+                a = a.dominator;
+            }
+            while (b.order > a.order) {
+                b = b.dominator;
+            }
+        }
+        return a;
+    }
+
+    // a 支配 b：从入口到 b 的路径都经过 a，执行不到的块不被任何块支配
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        if (!b.isReachable()) {
+            return false;
+        }
+        for (BasicBlock block = b; block != null; block = block.dominator) {
+            if (block == a) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 删去从入口执行不到的块，例如 return 之后的整个循环
+    public boolean removeUnreachable() {
+        boolean changed = blocks.removeIf(block -> !block.isReachable());
+        if (changed) {
+            for (BasicBlock block : blocks) {
+                block.predecessors.removeIf(predecessor -> !predecessor.isReachable());
+            }
+        }
+        return changed;
+    }
+
+    // 顺序执行的后继不紧跟在后面时要补一条 jmp
+    private boolean needsJump(int i) {
+        BasicBlock block = blocks.get(i);
+        BasicBlock following = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+        return block.fallsThrough && following != block.next;
+    }
+
+    // 按 blocks 的顺序写回，跳转目标换成目标块在新序列中的起点，跳到函数末尾的仍跳到末尾
+    public void store(InstructionBuffer code) {
+        if (!blocks.isEmpty() && blocks.get(0).start != 0) {
+            throw new IllegalStateException("入口块必须在最前");
+        }
+        int size = 0;
+        for (int i = 0; i < blocks.size(); ++i) {
+            blocks.get(i).position = size;
+            size += blocks.get(i).size() + (needsJump(i) ? 1 : 0);
+        }
+        code.truncate(0);
+        for (int i = 0; i < blocks.size(); ++i) {
+            BasicBlock block = blocks.get(i);
+            for (int j = block.start; j < block.end; ++j) {
+                int x = xs[j];
+                if (Peephole.isJump(instructions[j])) {
+                    x = block.target == null ? size : block.target.position;
+                }
+                code.add(instructions[j], x, ys[j]);
+            }
+            if (needsJump(i)) {
+                code.add(Instructions.jmp, block.next == null ? size : block.next.position, 0);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (BasicBlock block : blocks) {
+            builder.append('B').append(block.index).append(" [").append(block.start).append(", ").append(block.end).append(')');
+            builder.append(" pred").append(indexes(block.predecessors));
+            builder.append(" succ").append(indexes(block.successors));
+            if (block.dominator != null) {
+                builder.append(" idom B").append(block.dominator.index);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static String indexes(List<BasicBlock> blocks) {
+        int[] indexes = new int[blocks.size()];
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = blocks.get(i).index;
+        }
+        return Arrays.toString(indexes);
+    }
+}
@@ -0,0 +1,66 @@
+package InstructionWriter;
+
+import java.util.Arrays;
+
+// 一段指令，每条指令占三个 int：操作码序号和两个操作数，文本只在输出时生成
+public class InstructionBuffer {
+    private static final Instructions[] INSTRUCTIONS = Instructions.values();
+
+    private int[] code = new int[3 * 16];
+    private int size = 0;
+
+    public void add(Instructions instructions, int x, int y) {
+        int index = size * 3;
+        if (index == code.length) {
+            code = Arrays.copyOf(code, index * 2);
+        }
+        code[index] = instructions.ordinal();
+        code[index + 1] = x;
+        code[index + 2] = y;
+        ++size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Instructions get(int index) {
+        return INSTRUCTIONS[code[index * 3]];
+    }
+
+    public int x(int index) {
+        return code[index * 3 + 1];
+    }
+
+    public int y(int index) {
+        return code[index * 3 + 2];
+    }
+
+    void setX(int index, int x) {
+        code[index * 3 + 1] = x;
+    }
+
+    void set(int index, Instructions instructions, int x, int y) {
+        code[index * 3] = instructions.ordinal();
+        code[index * 3 + 1] = x;
+        code[index * 3 + 2] = y;
+    }
+
+    // 只保留前 size 条指令
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    // 与汇编文本中一行的格式相同，如 loada 0,3
+    public String text(int index) {
+        Instructions instructions = get(index);
+        switch (instructions.operands) {
+            case 0:
+                return instructions.toString();
+            case 1:
+                return instructions.toString() + ' ' + x(index);
+            default:
+                return instructions.toString() + ' ' + x(index) + ',' + y(index);
+        }
+    }
+}
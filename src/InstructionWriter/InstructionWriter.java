@@ -2,179 +2,355 @@ package InstructionWriter;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class InstructionWriter {
-    private ArrayList<String> constants = new ArrayList<>();
-    private ArrayList<String> start = new ArrayList<>();
-    private ArrayList<String> functions = new ArrayList<>();
-    private ArrayList<ArrayList<String>> functionList = new ArrayList<>();
-    private ArrayList<String> function;
-    private Assembler assembler;
+    private ConstantPool constants = new ConstantPool();
+    private InstructionBuffer start = new InstructionBuffer();
+    private ArrayList<int[]> functions = new ArrayList<>(); // 常量下标、函数名下标、参数大小、层次
+    private ArrayList<InstructionBuffer> functionList = new ArrayList<>();
+    private InstructionBuffer function;
+    private int[] identifierConstants = new int[0]; // 标识符编号对应的常量下标 + 1
+    // 函数内的跳转标签，跳转先写入不带目标的指令，标签绑定时一次回填
+    private int[] labels = new int[16]; // 标签绑定的指令下标，-1 表示尚未绑定
+    private int[] pending = new int[16]; // 标签上等待回填的跳转链表头，存放 sites 的下标 + 1
+    private int labelCount = 0;
+    private int[] sites = new int[16]; // 等待回填的跳转指令下标
+    private int[] nextSites = new int[16]; // 同一标签上的下一个跳转，存放 sites 的下标 + 1
+    private int siteCount = 0;
+    private String outputPath; // 为 null 时输出到标准输出
+    private WritableByteChannel channel; // 不为 null 时输出到这里，写完不关闭
+    private PrintStream err = System.err;
+    private boolean wide = false;
 
     public InstructionWriter() {
-        assembler = new Assembler();
     }
 
     public InstructionWriter(String outputPath) {
-        try {
-            System.setOut(new PrintStream(outputPath));
-        } catch (IOException e) {
-            System.out.println("不能写入文件！");
-        }
-        assembler = new Assembler();
+        this.outputPath = outputPath;
+    }
+
+    public InstructionWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // 目标文件超出格式范围等错误信息写到 err
+    public void setErrorStream(PrintStream err) {
+        this.err = err;
+    }
+
+    // 二进制输出使用 4 字节计数和跳转目标的宽格式
+    public void setWide(boolean wide) {
+        this.wide = wide;
     }
 
     public int writeConstants(String string) {
-        int index = constants.size();
-        if (constants.contains("S \"" + string + '"')) {
-            return constants.indexOf("S \"" + string + '"');
+        return constants.addString(string);
+    }
+
+    public int writeIntConstant(int value) {
+        return constants.addInt(value);
+    }
+
+    public int writeDoubleConstant(double value) {
+        return constants.addDouble(value);
+    }
+
+    // 函数名按标识符编号缓存常量下标，同一个名字不再查找字符串
+    public int writeConstants(int identifier, String name) {
+        if (identifier >= identifierConstants.length) {
+            identifierConstants = Arrays.copyOf(identifierConstants, Math.max(identifier + 1, identifierConstants.length * 2));
+        }
+        if (identifierConstants[identifier] == 0) {
+            identifierConstants[identifier] = writeConstants(name) + 1;
         }
-        constants.add("S \"" + string + '"');
-        return index;
+        return identifierConstants[identifier] - 1;
     }
 
     public void writeFunctions(int index, int nameIndex, int sizeOfParameter) {
-        functions.add(String.valueOf(index) + ' ' + nameIndex + ' ' + sizeOfParameter + " 1");
+        functions.add(new int[]{index, nameIndex, sizeOfParameter, 1});
     }
 
     public void newFunction() {
-        function = new ArrayList<>();
+        function = new InstructionBuffer();
         functionList.add(function);
+        labelCount = 0;
+        siteCount = 0;
     }
 
-    public int getSize() {
-        return function.size() - 1;
+    // 新建当前函数内的标签
+    public int newLabel() {
+        if (labelCount == labels.length) {
+            labels = Arrays.copyOf(labels, labelCount * 2);
+            pending = Arrays.copyOf(pending, labelCount * 2);
+        }
+        labels[labelCount] = -1;
+        pending[labelCount] = 0;
+        return labelCount++;
     }
 
-    public void write(int level, Instructions instructions) {
-        if (level == 0) {
-            writeStart(instructions);
-        } else {
-            writeFunction(instructions);
+    // 写入跳到 label 的指令，标签还未绑定时记下位置等待回填
+    public void writeJump(Instructions instructions, int label) {
+        if (labels[label] >= 0) {
+            function.add(instructions, labels[label], 0);
+            return;
+        }
+        if (siteCount == sites.length) {
+            sites = Arrays.copyOf(sites, siteCount * 2);
+            nextSites = Arrays.copyOf(nextSites, siteCount * 2);
         }
+        sites[siteCount] = function.size();
+        nextSites[siteCount] = pending[label];
+        pending[label] = ++siteCount;
+        function.add(instructions, 0, 0);
     }
 
-    public void write(int level, Instructions instructions, int x) {
-        if (level == 0) {
-            writeStart(instructions, x);
-        } else {
-            writeFunction(instructions, x);
+    // 把 label 绑定到下一条指令，回填之前跳到它的指令
+    public void bindLabel(int label) {
+        int target = function.size();
+        labels[label] = target;
+        for (int site = pending[label]; site != 0; site = nextSites[site - 1]) {
+            function.setX(sites[site - 1], target);
         }
+        pending[label] = 0;
     }
 
-    public void write(int level, Instructions instructions, int x, int y) {
-        if (level == 0) {
-            writeStart(instructions, x, y);
-        } else {
-            writeFunction(instructions, x, y);
+    // 接上在另一个写入器中单独生成的函数，它的常量按原来的顺序加入常量表，loadc 的下标随之改写
+    // 依次接上各个函数时，常量表与在同一个写入器中顺序生成的相同
+    public void append(InstructionWriter part) {
+        int[] indexes = new int[part.constants.size()];
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = copyConstant(part.constants, i, constants);
+        }
+        for (int[] entry : part.functions) {
+            functions.add(new int[]{entry[0], indexes[entry[1]], entry[2], entry[3]});
+        }
+        for (InstructionBuffer code : part.functionList) {
+            for (int i = 0; i < code.size(); ++i) {
+                if (code.get(i) == Instructions.loadc) {
+                    code.setX(i, indexes[code.x(i)]);
+                }
+            }
+            functionList.add(code);
         }
     }
 
-    public void write(int level, Instructions instructions, String x) {
-        if (level == 0) {
-            writeStart(instructions, x);
-        } else {
-            writeFunction(instructions, x);
+    private static int copyConstant(ConstantPool from, int index, ConstantPool to) {
+        switch (from.type(index)) {
+            case String:
+                return to.addString(from.string(index));
+            case Int:
+                return to.addInt(from.intValue(index));
+            default:
+                return to.addDouble(from.doubleValue(index));
+        }
+    }
+
+    // 从 main 和 .start 出发沿 call 找出用到的函数，删去其余的，call 的操作数改为函数在新表中的下标
+    // 再删去不再用到的常量，其余常量保持原来的顺序；没有 main 时只整理常量
+    public void removeUnusedFunctions() {
+        int main = -1;
+        for (int i = 0; i < functions.size(); ++i) {
+            int name = functions.get(i)[1];
+            if (constants.type(name) == ConstantType.String && constants.string(name).equals("main")) {
+                main = i;
+            }
+        }
+        if (main >= 0) {
+            boolean[] used = new boolean[functions.size()];
+            int[] stack = new int[functions.size()];
+            int depth = 0;
+            used[main] = true;
+            stack[depth++] = main;
+            depth = pushCalls(start, used, stack, depth);
+            while (depth > 0) {
+                depth = pushCalls(functionList.get(stack[--depth]), used, stack, depth);
+            }
+            int[] indexes = new int[functions.size()];
+            ArrayList<int[]> usedFunctions = new ArrayList<>();
+            ArrayList<InstructionBuffer> usedFunctionList = new ArrayList<>();
+            for (int i = 0; i < functions.size(); ++i) {
+                if (used[i]) {
+                    indexes[i] = usedFunctions.size();
+                    int[] entry = functions.get(i);
+                    entry[0] = usedFunctions.size();
+                    usedFunctions.add(entry);
+                    usedFunctionList.add(functionList.get(i));
+                }
+            }
+            functions = usedFunctions;
+            functionList = usedFunctionList;
+            renumberCalls(start, indexes);
+            for (InstructionBuffer code : functionList) {
+                renumberCalls(code, indexes);
+            }
         }
+        removeUnusedConstants();
     }
 
-    public void insert(int index, Instructions instructions, int x) {
-        function.add(index, instructions.toString() + ' ' + x);
-        for (int i = index + 1; i < function.size(); ++i) {
-            String[] strings = function.get(i).split(" ");
-            String string = strings[0];
-            if (string.equals("jmp") || string.equals("je") || string.equals("jne") || string.equals("jl") || string.equals("jge") || string.equals("jg") || string.equals("jle")) {
-                function.set(i, string + " " + (Integer.parseInt(strings[1]) + 1));
+    // call 的操作数是函数在 functions 中的下标，把 code 调用的还没见过的函数压入栈中
+    private static int pushCalls(InstructionBuffer code, boolean[] used, int[] stack, int depth) {
+        for (int i = 0; i < code.size(); ++i) {
+            if (code.get(i) == Instructions.call && !used[code.x(i)]) {
+                used[code.x(i)] = true;
+                stack[depth++] = code.x(i);
             }
         }
+        return depth;
     }
 
-    private void writeStart(Instructions instructions) {
-        start.add(instructions.toString());
+    private static void renumberCalls(InstructionBuffer code, int[] indexes) {
+        for (int i = 0; i < code.size(); ++i) {
+            if (code.get(i) == Instructions.call) {
+                code.setX(i, indexes[code.x(i)]);
+            }
+        }
     }
 
-    private void writeStart(Instructions instructions, int x) {
-        start.add(instructions.toString() + ' ' + x);
+    // 只保留 loadc 和函数名用到的常量，例如窥孔优化合并字符串后留下的片段和删去的函数的名字
+    private void removeUnusedConstants() {
+        boolean[] used = new boolean[constants.size()];
+        markConstants(start, used);
+        for (InstructionBuffer code : functionList) {
+            markConstants(code, used);
+        }
+        for (int[] entry : functions) {
+            used[entry[1]] = true;
+        }
+        ConstantPool usedConstants = new ConstantPool();
+        int[] indexes = new int[constants.size()];
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = used[i] ? copyConstant(constants, i, usedConstants) : -1;
+        }
+        if (usedConstants.size() == constants.size()) {
+            return;
+        }
+        constants = usedConstants;
+        renumberConstants(start, indexes);
+        for (InstructionBuffer code : functionList) {
+            renumberConstants(code, indexes);
+        }
+        for (int[] entry : functions) {
+            entry[1] = indexes[entry[1]];
+        }
+        for (int i = 0; i < identifierConstants.length; ++i) {
+            if (identifierConstants[i] != 0) {
+                identifierConstants[i] = indexes[identifierConstants[i] - 1] + 1;
+            }
+        }
     }
 
-    private void writeStart(Instructions instructions, int x, int y) {
-        if (instructions == Instructions.loada) {
-            x = 0;
+    private static void markConstants(InstructionBuffer code, boolean[] used) {
+        for (int i = 0; i < code.size(); ++i) {
+            if (code.get(i) == Instructions.loadc) {
+                used[code.x(i)] = true;
+            }
         }
-        start.add(instructions.toString() + ' ' + x + ',' + y);
     }
 
-    private void writeStart(Instructions instructions, String x) {
-        start.add(instructions.toString() + ' ' + x);
+    private static void renumberConstants(InstructionBuffer code, int[] indexes) {
+        for (int i = 0; i < code.size(); ++i) {
+            if (code.get(i) == Instructions.loadc) {
+                code.setX(i, indexes[code.x(i)]);
+            }
+        }
     }
 
-    private void writeFunction(Instructions instructions) {
-        function.add(instructions.toString());
+    // 对当前函数先按控制流图删去执行不到的块，再做窥孔优化，合并出的字符串加入常量表
+    public void optimize(Peephole peephole) {
+        ControlFlowGraph graph = new ControlFlowGraph(function);
+        if (graph.removeUnreachable()) {
+            graph.store(function);
+        }
+        peephole.optimize(function, constants);
     }
 
-    private void writeFunction(Instructions instructions, int x) {
-        function.add(instructions.toString() + ' ' + x);
+    // .start 和各个函数的指令总数
+    public int instructionCount() {
+        int count = start.size();
+        for (InstructionBuffer code : functionList) {
+            count += code.size();
+        }
+        return count;
     }
 
-    private void writeFunction(Instructions instructions, int x, int y) {
-        function.add(instructions.toString() + ' ' + x + ',' + y);
+    public void write(int level, Instructions instructions) {
+        write(level, instructions, 0, 0);
     }
 
-    private void writeFunction(Instructions instructions, String x) {
-        function.add(instructions.toString() + ' ' + x);
+    public void write(int level, Instructions instructions, int x) {
+        write(level, instructions, x, 0);
     }
 
-    public void output() {
-        System.out.println(".constants:");
-        for (int i = 0; i < constants.size(); ++i) {
-            System.out.print(i);
-            System.out.print(' ');
-            String string = constants.get(i);
-            if (string.charAt(0) == 'S') {
-                System.out.print(string.charAt(0));
-                System.out.print(' ');
-                for (int j = 2; j < string.length(); ++j) {
-                    if (string.charAt(j) < ' ') {
-                        System.out.print("\\x");
-                        String hexString = Integer.toHexString(string.charAt(j));
-                        if (hexString.length() == 1) {
-                            System.out.print(0);
-                        }
-                        System.out.print(hexString);
-                    } else {
-                        System.out.print(string.charAt(j));
-                    }
-                }
-                System.out.println();
-            } else {
-                System.out.println(string);
+    public void write(int level, Instructions instructions, int x, int y) {
+        if (level == 0) {
+            if (instructions == Instructions.loada) {
+                x = 0;
             }
+            start.add(instructions, x, y);
+        } else {
+            function.add(instructions, x, y);
         }
-        System.out.println(".start:");
-        for (int i = 0; i < start.size(); ++i) {
-            System.out.print(i);
-            System.out.print('\t');
-            System.out.println(start.get(i));
-        }
-        System.out.println(".functions:");
-        for (String string : functions) {
-            System.out.println(string);
-        }
-        for (int i = 0; i < functionList.size(); ++i) {
-            ArrayList<String> function = functionList.get(i);
-            System.out.print(".F");
-            System.out.print(i);
-            System.out.println(':');
-            for (int j = 0; j < function.size(); ++j) {
-                System.out.print(j);
-                System.out.print('\t');
-                System.out.println(function.get(j));
+    }
+
+    public void output() {
+        try {
+            WritableByteChannel channel = open();
+            try {
+                new TextAssembler(channel).output(constants, start, functions, functionList);
+            } finally {
+                close(channel);
             }
+        } catch (IOException e) {
+            err.println("不能写入文件！");
         }
     }
 
     public void assemble() {
-        assembler.output(constants, start, functions, functionList);
+        Assembler assembler = new Assembler(wide);
+        try {
+            ByteBuffer[] buffers = assembler.encode(constants, start, functions, functionList);
+            WritableByteChannel channel = open();
+            try {
+                assembler.write(buffers, channel);
+            } finally {
+                close(channel);
+            }
+        } catch (AssembleException e) {
+            err.println(e.getMessage());
+        } catch (IOException e) {
+            err.println("不能写入文件！");
+        }
+    }
+
+    // 输出文件在生成完指令后才打开，不改动 System.out，同一进程中的多次编译互不影响
+    private WritableByteChannel open() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+        if (outputPath == null) {
+            return Channels.newChannel(System.out);
+        }
+        return FileChannel.open(Paths.get(outputPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // 标准输出只刷新不关闭，调用者给出的通道由调用者关闭
+    private void close(WritableByteChannel channel) throws IOException {
+        if (this.channel != null) {
+            return;
+        }
+        if (outputPath == null) {
+            System.out.flush();
+        } else {
+            channel.close();
+        }
     }
 }
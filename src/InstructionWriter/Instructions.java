@@ -1,13 +1,39 @@
 package InstructionWriter;
 
+// 每条指令的操作码和各操作数在目标文件中占用的字节数
 public enum Instructions {
-    nop, bipush, ipush, pop, pop2, popn, dup, dup2, loadc, loada, snew,
-    iload, dload, aload, iaload, daload, aaload,
-    istore, dstore, astore, iastore, dastore, aastore,
-    iadd, dadd, isub, dsub, imul, dmul, idiv, ddiv,
-    ineg, dneg, icmp, dcmp,
-    i2d, d2i, i2c,
-    jmp, je, jne, jl, jge, jg, jle,
-    call, ret, iret, dret, aret,
-    iprint, dprint, cprint, sprint, printl, iscan, dscan, cscan
+    nop(0x00), bipush(0x01, 1), ipush(0x02, 4), pop(0x04), pop2(0x05), popn(0x06, 4), dup(0x07), dup2(0x08),
+    loadc(0x09, 2), loada(0x0a, 2, 4), snew(0x0c, 4),
+    iload(0x10), dload(0x11), aload(0x12), iaload(0x18), daload(0x19), aaload(0x1a),
+    istore(0x20), dstore(0x21), astore(0x22), iastore(0x28), dastore(0x29), aastore(0x2a),
+    iadd(0x30), dadd(0x31), isub(0x34), dsub(0x35), imul(0x38), dmul(0x39), idiv(0x3c), ddiv(0x3d),
+    ineg(0x40), dneg(0x41), icmp(0x44), dcmp(0x45),
+    i2d(0x60), d2i(0x61), i2c(0x62),
+    jmp(0x70, 2), je(0x71, 2), jne(0x72, 2), jl(0x73, 2), jge(0x74, 2), jg(0x75, 2), jle(0x76, 2),
+    call(0x80, 2), ret(0x88), iret(0x89), dret(0x8a), aret(0x8b),
+    iprint(0xa0), dprint(0xa1), cprint(0xa2), sprint(0xa3), printl(0xaf), iscan(0xb0), dscan(0xb1), cscan(0xb2);
+
+    public final int code;
+    public final int operands;
+    public final int firstWidth;
+    public final int secondWidth;
+
+    Instructions(int code) {
+        this(code, 0, 0, 0);
+    }
+
+    Instructions(int code, int firstWidth) {
+        this(code, 1, firstWidth, 0);
+    }
+
+    Instructions(int code, int firstWidth, int secondWidth) {
+        this(code, 2, firstWidth, secondWidth);
+    }
+
+    Instructions(int code, int operands, int firstWidth, int secondWidth) {
+        this.code = code;
+        this.operands = operands;
+        this.firstWidth = firstWidth;
+        this.secondWidth = secondWidth;
+    }
 }
@@ -0,0 +1,148 @@
+package InstructionWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 对一个函数的指令反复应用规则表中的规则，直到不再变化，再删去标记为删除的指令并改写跳转目标
+// 删除的指令先留在原处，跳到它的指令改为跳到它之后第一条没有删除的指令
+public class Peephole {
+    private final ArrayList<PeepholeRule> rules;
+    private ConstantPool constants;
+    private Instructions[] instructions = new Instructions[16]; // 删除的指令为 null
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int[] targets = new int[17]; // 跳到每条指令的跳转个数，最后一个是跳到函数末尾的
+    private int size;
+
+    public Peephole(List<PeepholeRule> rules) {
+        this.rules = new ArrayList<>(rules);
+    }
+
+    public static boolean isJump(Instructions instructions) {
+        return instructions.ordinal() >= Instructions.jmp.ordinal() && instructions.ordinal() <= Instructions.jle.ordinal();
+    }
+
+    public void optimize(InstructionBuffer code, ConstantPool constants) {
+        this.constants = constants;
+        load(code);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < size; ++i) {
+                for (PeepholeRule rule : rules) {
+                    if (instructions[i] != null && rule.apply(this, i)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+        store(code);
+    }
+
+    private void load(InstructionBuffer code) {
+        size = code.size();
+        if (size > instructions.length) {
+            instructions = new Instructions[size];
+            xs = new int[size];
+            ys = new int[size];
+            targets = new int[size + 1];
+        } else {
+            Arrays.fill(targets, 0, size + 1, 0);
+        }
+        for (int i = 0; i < size; ++i) {
+            instructions[i] = code.get(i);
+            xs[i] = code.x(i);
+            ys[i] = code.y(i);
+            if (isJump(instructions[i])) {
+                ++targets[xs[i]];
+            }
+        }
+    }
+
+    private void store(InstructionBuffer code) {
+        int[] indexes = new int[size + 1];
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            indexes[i] = count;
+            if (instructions[i] != null) {
+                ++count;
+            }
+        }
+        indexes[size] = count;
+        for (int i = 0; i < size; ++i) {
+            if (instructions[i] != null) {
+                int x = isJump(instructions[i]) ? indexes[target(i)] : xs[i];
+                code.set(indexes[i], instructions[i], x, ys[i]);
+            }
+        }
+        code.truncate(count);
+    }
+
+    public ConstantPool constants() {
+        return constants;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // index 之后第一条没有删除的指令，没有时为 size
+    public int next(int index) {
+        return resolve(index + 1);
+    }
+
+    private int resolve(int index) {
+        while (index < size && instructions[index] == null) {
+            ++index;
+        }
+        return index;
+    }
+
+    // index 为 size 或已删除时为 null
+    public Instructions get(int index) {
+        return index < size ? instructions[index] : null;
+    }
+
+    public int x(int index) {
+        return xs[index];
+    }
+
+    public int y(int index) {
+        return ys[index];
+    }
+
+    // 跳转指令实际跳到的指令
+    public int target(int index) {
+        return resolve(xs[index]);
+    }
+
+    public boolean isTarget(int index) {
+        return targets[index] > 0;
+    }
+
+    public void delete(int index) {
+        if (isJump(instructions[index])) {
+            --targets[target(index)];
+        }
+        instructions[index] = null;
+        targets[resolve(index)] += targets[index];
+        targets[index] = 0;
+    }
+
+    public void replace(int index, Instructions instructions, int x, int y) {
+        if (isJump(this.instructions[index])) {
+            --targets[target(index)];
+        }
+        this.instructions[index] = instructions;
+        xs[index] = x;
+        ys[index] = y;
+        if (isJump(instructions)) {
+            ++targets[target(index)];
+        }
+    }
+
+    public void retarget(int index, int target) {
+        replace(index, instructions[index], target, ys[index]);
+    }
+}
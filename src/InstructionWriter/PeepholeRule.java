@@ -0,0 +1,6 @@
+package InstructionWriter;
+
+// 窥孔优化的一条规则，在 index 处匹配时通过 Peephole 的方法就地改写并返回 true
+public interface PeepholeRule {
+    boolean apply(Peephole code, int index);
+}
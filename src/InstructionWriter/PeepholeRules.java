@@ -0,0 +1,136 @@
+package InstructionWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 默认的窥孔优化规则表
+// 匹配多条指令时，除第一条外都不能是跳转目标，否则从别处跳进来会执行不完整的序列
+public class PeepholeRules {
+    private static final int MAX_MERGED_STRING = 4096; // 合并后的字符串长度上限，远小于目标文件中 2 字节的长度
+
+    public static List<PeepholeRule> defaults() {
+        ArrayList<PeepholeRule> rules = new ArrayList<>();
+        rules.add(PeepholeRules::jumpToJump);
+        rules.add(PeepholeRules::jumpToNext);
+        rules.add(PeepholeRules::unreachable);
+        rules.add(PeepholeRules::mergePrint);
+        rules.add(PeepholeRules::popBeforeReturn);
+        rules.add(PeepholeRules::mergePop);
+        return rules;
+    }
+
+    // 跳到 jmp 的跳转直接跳到它的目标，else if 链的结尾会产生这样的跳转
+    static boolean jumpToJump(Peephole code, int index) {
+        if (!Peephole.isJump(code.get(index))) {
+            return false;
+        }
+        int target = code.target(index);
+        if (target == index || code.get(target) != Instructions.jmp) {
+            return false;
+        }
+        int next = code.target(target);
+        if (next == target || next == code.target(index)) {
+            return false;
+        }
+        code.retarget(index, next);
+        return true;
+    }
+
+    // 跳到下一条指令的 jmp 删去，条件跳转换成 pop 弹出条件的值
+    static boolean jumpToNext(Peephole code, int index) {
+        if (!Peephole.isJump(code.get(index)) || code.target(index) != code.next(index)) {
+            return false;
+        }
+        if (code.get(index) == Instructions.jmp) {
+            code.delete(index);
+        } else {
+            code.replace(index, Instructions.pop, 0, 0);
+        }
+        return true;
+    }
+
+    // jmp、ret、iret 之后直到下一个跳转目标之前的指令执行不到，例如函数末尾默认的 ipush 0; iret
+    static boolean unreachable(Peephole code, int index) {
+        Instructions instructions = code.get(index);
+        if (instructions != Instructions.jmp && instructions != Instructions.ret && instructions != Instructions.iret) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = code.next(index); i < code.size() && !code.isTarget(i); i = code.next(i)) {
+            code.delete(i);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // 连续输出的字符串和字符合并为一个字符串常量，例如 loadc a; sprint; bipush 32; cprint; loadc b; sprint
+    // 一次合并整段，不留下中间的字符串
+    static boolean mergePrint(Peephole code, int index) {
+        StringBuilder builder = new StringBuilder();
+        int pairs = 0;
+        for (int load = index; ; ++pairs) {
+            int print = code.next(load);
+            if (print >= code.size() || (pairs > 0 && code.isTarget(load)) || code.isTarget(print)) {
+                break;
+            }
+            String string = printed(code, load, print);
+            if (string == null || builder.length() + string.length() > MAX_MERGED_STRING) {
+                break;
+            }
+            builder.append(string);
+            load = code.next(print);
+        }
+        if (pairs < 2) {
+            return false;
+        }
+        int print = code.next(index);
+        code.replace(index, Instructions.loadc, code.constants().addString(builder.toString()), 0);
+        code.replace(print, Instructions.sprint, 0, 0);
+        for (int i = 2 * (pairs - 1); i > 0; --i) {
+            code.delete(code.next(print));
+        }
+        return true;
+    }
+
+    // load、print 两条指令输出的字符串，不是字符串或字符常量时为 null
+    private static String printed(Peephole code, int load, int print) {
+        if (code.get(load) == Instructions.loadc && code.get(print) == Instructions.sprint
+                && code.constants().type(code.x(load)) == ConstantType.String) {
+            return code.constants().string(code.x(load));
+        }
+        if (code.get(load) == Instructions.bipush && code.get(print) == Instructions.cprint && code.x(load) > 0 && code.x(load) < 128) {
+            return String.valueOf((char) code.x(load));
+        }
+        return null;
+    }
+
+    // ret 会丢弃整个栈帧，之前的 pop、popn 没有必要
+    static boolean popBeforeReturn(Peephole code, int index) {
+        Instructions instructions = code.get(index);
+        if ((instructions != Instructions.pop && instructions != Instructions.popn) || code.get(code.next(index)) != Instructions.ret) {
+            return false;
+        }
+        code.delete(index);
+        return true;
+    }
+
+    // 相邻的 pop、popn 合并为一条 popn
+    static boolean mergePop(Peephole code, int index) {
+        int next = code.next(index);
+        int first = popped(code, index);
+        int second = next < code.size() ? popped(code, next) : 0;
+        if (first == 0 || second == 0 || code.isTarget(next)) {
+            return false;
+        }
+        code.replace(index, Instructions.popn, first + second, 0);
+        code.delete(next);
+        return true;
+    }
+
+    private static int popped(Peephole code, int index) {
+        if (code.get(index) == Instructions.pop) {
+            return 1;
+        }
+        return code.get(index) == Instructions.popn ? code.x(index) : 0;
+    }
+}
@@ -0,0 +1,182 @@
+package InstructionWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+// 文本汇编文件的输出，内容先编码到一块复用的字节缓冲区，满了才整块写入通道
+// 指令名、字符的转义和换行符都预先编码成字节，整数直接按位写入缓冲区，不生成中间的字符串
+public class TextAssembler {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final byte[][] NAMES = new byte[Instructions.values().length][];
+    private static final byte[][] CHARACTERS = new byte[256][]; // 字符串常量中每个字符输出的字节
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    static {
+        for (Instructions instructions : Instructions.values()) {
+            NAMES[instructions.ordinal()] = instructions.toString().getBytes();
+        }
+        for (int c = 0; c < CHARACTERS.length; ++c) {
+            if (c < ' ') {
+                CHARACTERS[c] = new byte[]{'\\', 'x', HEX[c >> 4], HEX[c & 0xf]};
+            } else {
+                CHARACTERS[c] = String.valueOf((char) c).getBytes();
+            }
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+    private int position = 0;
+
+    public TextAssembler(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public void output(ConstantPool constants, InstructionBuffer start, ArrayList<int[]> functions, ArrayList<InstructionBuffer> functionList) throws IOException {
+        line(".constants:");
+        for (int i = 0; i < constants.size(); ++i) {
+            writeInt(i);
+            write(' ');
+            write(constants.type(i).tag);
+            write(' ');
+            switch (constants.type(i)) {
+                case String:
+                    writeString(constants.string(i));
+                    break;
+                case Int:
+                    writeInt(constants.intValue(i));
+                    break;
+                case Double:
+                    write(Double.toString(constants.doubleValue(i)));
+                    break;
+            }
+            newLine();
+        }
+        line(".start:");
+        instructions(start);
+        line(".functions:");
+        for (int[] function : functions) {
+            writeInt(function[0]);
+            for (int j = 1; j < 4; ++j) {
+                write(' ');
+                writeInt(function[j]);
+            }
+            newLine();
+        }
+        for (int i = 0; i < functionList.size(); ++i) {
+            write(".F");
+            writeInt(i);
+            write(':');
+            newLine();
+            instructions(functionList.get(i));
+        }
+        flush();
+    }
+
+    // 每行为序号、制表符和指令，如 0	loada 0,3
+    private void instructions(InstructionBuffer instructions) throws IOException {
+        for (int i = 0; i < instructions.size(); ++i) {
+            Instructions instruction = instructions.get(i);
+            writeInt(i);
+            write('\t');
+            write(NAMES[instruction.ordinal()]);
+            if (instruction.operands > 0) {
+                write(' ');
+                writeInt(instructions.x(i));
+                if (instruction.operands > 1) {
+                    write(',');
+                    writeInt(instructions.y(i));
+                }
+            }
+            newLine();
+        }
+    }
+
+    // 带引号，控制字符写成 \xHH
+    private void writeString(String string) throws IOException {
+        write('"');
+        for (int i = 0; i < string.length(); ++i) {
+            char c = string.charAt(i);
+            if (c < CHARACTERS.length) {
+                write(CHARACTERS[c]);
+            } else {
+                write(String.valueOf(c).getBytes());
+            }
+        }
+        write('"');
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (position + 11 > buffer.length) {
+            drain();
+        }
+        long number = value;
+        if (number < 0) {
+            buffer[position++] = '-';
+            number = -number;
+        }
+        int end = position + digits(number);
+        for (int i = end - 1; i >= position; --i) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        position = end;
+    }
+
+    private static int digits(long number) {
+        int digits = 1;
+        while (number >= 10) {
+            number /= 10;
+            ++digits;
+        }
+        return digits;
+    }
+
+    private void line(String string) throws IOException {
+        write(string);
+        newLine();
+    }
+
+    private void newLine() throws IOException {
+        write(LINE_SEPARATOR);
+    }
+
+    // 只用于 ASCII 的段名和浮点数
+    private void write(String string) throws IOException {
+        for (int i = 0; i < string.length(); ++i) {
+            write(string.charAt(i));
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            drain();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void drain() throws IOException {
+        wrapper.clear().limit(position);
+        while (wrapper.hasRemaining()) {
+            channel.write(wrapper);
+        }
+        position = 0;
+    }
+
+    // 写出缓冲区中剩下的内容，通道由调用者关闭
+    public void flush() throws IOException {
+        drain();
+    }
+}
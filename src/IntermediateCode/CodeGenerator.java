@@ -0,0 +1,70 @@
+package IntermediateCode;
+
+import InstructionWriter.InstructionWriter;
+import InstructionWriter.Instructions;
+import InstructionWriter.Peephole;
+import SymbolTable.FunctionSymbol;
+import SymbolTable.VariableSymbol;
+
+// 把中间代码翻译为指令，符号操作数在这里换成层次差、偏移和常量下标
+public class CodeGenerator {
+    private final InstructionWriter instructionWriter;
+    private final Peephole peephole; // 为 null 时不做窥孔优化
+
+    public CodeGenerator(InstructionWriter instructionWriter, Peephole peephole) {
+        this.instructionWriter = instructionWriter;
+        this.peephole = peephole;
+    }
+
+    public void generate(IrProgram program) {
+        generate(program.start, 0);
+        for (IrFunction code : program.functions) {
+            FunctionSymbol function = code.function;
+            int constantIndex = instructionWriter.writeConstants(code.identifier, function.getName());
+            instructionWriter.newFunction();
+            instructionWriter.writeFunctions(function.offset, constantIndex, function.getArgsSize());
+            generate(code, 1);
+            // 每个函数生成完就优化，合并出的字符串紧跟在这个函数的常量之后，与并行生成时的常量表相同
+            if (peephole != null) {
+                instructionWriter.optimize(peephole);
+            }
+        }
+    }
+
+    // level 为 0 时写入 .start；中间代码的标签按编号一一对应到指令写入器的标签
+    private void generate(IrFunction code, int level) {
+        for (int i = 0; i < code.labels(); ++i) {
+            instructionWriter.newLabel();
+        }
+        for (int i = 0; i < code.size(); ++i) {
+            IrOp op = code.op(i);
+            switch (op.operand) {
+                case None:
+                    instructionWriter.write(level, op.instruction);
+                    break;
+                case Value:
+                    instructionWriter.write(level, op.instruction, code.operand(i));
+                    break;
+                case Variable: {
+                    // 局部变量层次差为 0，全局变量为 1
+                    VariableSymbol variable = (VariableSymbol) code.reference(i);
+                    instructionWriter.write(level, Instructions.loada, variable.level >= 1 ? 0 : 1, variable.offset);
+                    break;
+                }
+                case Function:
+                    instructionWriter.write(level, Instructions.call, ((FunctionSymbol) code.reference(i)).offset);
+                    break;
+                case String:
+                    instructionWriter.write(level, Instructions.loadc, instructionWriter.writeConstants((String) code.reference(i)));
+                    break;
+                case Label:
+                    if (op == IrOp.Label) {
+                        instructionWriter.bindLabel(code.operand(i));
+                    } else {
+                        instructionWriter.writeJump(op.instruction, code.operand(i));
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package IntermediateCode;
+
+import SymbolTable.FunctionSymbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// 一个函数或 .start 的中间代码，每条占两个 int：操作的序号和操作数
+// 变量、函数和字符串操作数存放在 references 中，操作数是它的下标
+public class IrFunction {
+    private static final IrOp[] OPS = IrOp.values();
+
+    public final FunctionSymbol function; // .start 为 null
+    public final int identifier; // 函数名的标识符编号
+    private int[] code = new int[2 * 16];
+    private int size = 0;
+    private final ArrayList<Object> references = new ArrayList<>();
+    private int labels = 0;
+
+    public IrFunction(FunctionSymbol function, int identifier) {
+        this.function = function;
+        this.identifier = identifier;
+    }
+
+    public void add(IrOp op) {
+        add(op, 0);
+    }
+
+    public void add(IrOp op, int operand) {
+        int index = size * 2;
+        if (index == code.length) {
+            code = Arrays.copyOf(code, index * 2);
+        }
+        code[index] = op.ordinal();
+        code[index + 1] = operand;
+        ++size;
+    }
+
+    public void add(IrOp op, Object reference) {
+        add(op, references.size());
+        references.add(reference);
+    }
+
+    public int newLabel() {
+        return labels++;
+    }
+
+    public int labels() {
+        return labels;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IrOp op(int index) {
+        return OPS[code[index * 2]];
+    }
+
+    public int operand(int index) {
+        return code[index * 2 + 1];
+    }
+
+    public Object reference(int index) {
+        return references.get(operand(index));
+    }
+}
@@ -0,0 +1,41 @@
+package IntermediateCode;
+
+import InstructionWriter.Instructions;
+
+// 中间代码的操作，与栈式虚拟机的指令一一对应，但操作数是符号：变量、函数、字符串和标签到生成指令时才换成下标
+public enum IrOp {
+    PushInt(Instructions.ipush, Operand.Value), PushChar(Instructions.bipush, Operand.Value),
+    Address(Instructions.loada, Operand.Variable), Load(Instructions.iload), Store(Instructions.istore),
+    Add(Instructions.iadd), Sub(Instructions.isub), Mul(Instructions.imul), Div(Instructions.idiv),
+    Neg(Instructions.ineg), ToChar(Instructions.i2c), Compare(Instructions.icmp),
+    Jump(Instructions.jmp, Operand.Label), JumpEqual(Instructions.je, Operand.Label),
+    JumpNotEqual(Instructions.jne, Operand.Label), JumpLess(Instructions.jl, Operand.Label),
+    JumpGreaterOrEqual(Instructions.jge, Operand.Label), JumpGreater(Instructions.jg, Operand.Label),
+    JumpLessOrEqual(Instructions.jle, Operand.Label), Label(null, Operand.Label),
+    Call(Instructions.call, Operand.Function), Pop(Instructions.pop), PopN(Instructions.popn, Operand.Value),
+    Return(Instructions.ret), ReturnValue(Instructions.iret),
+    LoadString(Instructions.loadc, Operand.String), PrintInt(Instructions.iprint), PrintChar(Instructions.cprint),
+    PrintString(Instructions.sprint), PrintLine(Instructions.printl), ScanInt(Instructions.iscan),
+    ScanChar(Instructions.cscan);
+
+    public enum Operand {
+        None,
+        Value, // 整数
+        Variable, // VariableSymbol
+        Function, // FunctionSymbol
+        String, // 字符串字面量
+        Label // 函数内的标签编号
+    }
+
+    public final Instructions instruction; // Label 不生成指令
+    public final Operand operand;
+
+    IrOp(Instructions instruction) {
+        this(instruction, Operand.None);
+    }
+
+    IrOp(Instructions instruction, Operand operand) {
+        this.instruction = instruction;
+        this.operand = operand;
+    }
+}
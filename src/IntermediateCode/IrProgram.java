@@ -0,0 +1,9 @@
+package IntermediateCode;
+
+import java.util.ArrayList;
+
+// 整个程序的中间代码，函数按定义的顺序排列
+public class IrProgram {
+    public final IrFunction start = new IrFunction(null, -1);
+    public final ArrayList<IrFunction> functions = new ArrayList<>();
+}
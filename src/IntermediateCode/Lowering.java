@@ -0,0 +1,215 @@
+package IntermediateCode;
+
+import SymbolTable.DataType;
+import SymbolTable.FunctionSymbol;
+import SyntaxTree.Folding;
+import SyntaxTree.Node;
+import WordAnalyzer.WordSymbol;
+
+// 把语法树翻译为线性的中间代码，控制结构展开为标签和跳转
+public class Lowering {
+    private IrFunction code;
+
+    // 全局变量说明，初值写入 .start
+    public void global(Node node, IrFunction start) {
+        code = start;
+        statement(node);
+    }
+
+    // 函数体之后补上默认的返回
+    public IrFunction function(Node node) {
+        FunctionSymbol function = (FunctionSymbol) node.symbol;
+        code = new IrFunction(function, node.value);
+        statement(node.children[0]);
+        if (function.dataType == DataType.Void) {
+            code.add(IrOp.Return);
+        } else {
+            code.add(function.dataType == DataType.Char ? IrOp.PushChar : IrOp.PushInt, 0);
+            code.add(IrOp.ReturnValue);
+        }
+        return code;
+    }
+
+    private void statement(Node node) {
+        switch (node.type) {
+            case Variable:
+                if (node.children.length == 0) {
+                    code.add(IrOp.PushChar, 0);
+                } else if (node.symbol.dataType == DataType.Char) {
+                    charExpression(node.children[0]);
+                } else {
+                    expression(node.children[0]);
+                }
+                break;
+            case Block:
+                for (Node child : node.children) {
+                    statement(child);
+                }
+                if (node.value != 0) {
+                    code.add(IrOp.PopN, node.value);
+                }
+                break;
+            case CallStatement:
+                expression(node.children[0]);
+                if (node.children[0].symbol.dataType != DataType.Void) {
+                    code.add(IrOp.Pop);
+                }
+                break;
+            case Assign:
+                code.add(IrOp.Address, node.symbol);
+                expression(node.children[0]);
+                code.add(IrOp.Store);
+                break;
+            case If: {
+                int elseLabel = code.newLabel();
+                condition(node.children[0], elseLabel);
+                statement(node.children[1]);
+                if (node.children.length > 2) {
+                    int endLabel = code.newLabel();
+                    code.add(IrOp.Jump, endLabel);
+                    code.add(IrOp.Label, elseLabel);
+                    statement(node.children[2]);
+                    code.add(IrOp.Label, endLabel);
+                } else {
+                    code.add(IrOp.Label, elseLabel);
+                }
+                break;
+            }
+            case While: {
+                int loopLabel = code.newLabel();
+                int endLabel = code.newLabel();
+                code.add(IrOp.Label, loopLabel);
+                condition(node.children[0], endLabel);
+                statement(node.children[1]);
+                code.add(IrOp.Jump, loopLabel);
+                code.add(IrOp.Label, endLabel);
+                break;
+            }
+            case Return:
+                if (node.children.length == 0) {
+                    code.add(IrOp.Return);
+                } else {
+                    if (node.symbol.dataType == DataType.Char) {
+                        charExpression(node.children[0]);
+                    } else {
+                        expression(node.children[0]);
+                    }
+                    code.add(IrOp.ReturnValue);
+                }
+                break;
+            case Scan:
+                code.add(IrOp.Address, node.symbol);
+                code.add(node.symbol.dataType == DataType.Char ? IrOp.ScanChar : IrOp.ScanInt);
+                code.add(IrOp.Store);
+                break;
+            case Print:
+                for (int i = 0; i < node.children.length; ++i) {
+                    if (i > 0) {
+                        code.add(IrOp.PushChar, 32);
+                        code.add(IrOp.PrintChar);
+                    }
+                    Node item = node.children[i];
+                    if (item.text != null) {
+                        code.add(IrOp.LoadString, item.text);
+                        code.add(IrOp.PrintString);
+                    } else {
+                        expression(item.children[0]);
+                        code.add(item.value != 0 ? IrOp.PrintChar : IrOp.PrintInt);
+                    }
+                }
+                code.add(IrOp.PrintLine);
+                break;
+            default:
+                throw new IllegalArgumentException("不是语句: " + node.type);
+        }
+    }
+
+    // 条件不成立时跳到 label
+    private void condition(Node node, int label) {
+        expression(node.children[0]);
+        if (node.operator == null) {
+            code.add(IrOp.JumpEqual, label);
+            return;
+        }
+        expression(node.children[1]);
+        code.add(IrOp.Compare);
+        code.add(falseJump(node.operator), label);
+    }
+
+    static IrOp falseJump(WordSymbol relation) {
+        switch (relation) {
+            case Less:
+                return IrOp.JumpGreaterOrEqual;
+            case LessOrEqual:
+                return IrOp.JumpGreater;
+            case Greater:
+                return IrOp.JumpLessOrEqual;
+            case GreaterOrEqual:
+                return IrOp.JumpLess;
+            case NotEqual:
+                return IrOp.JumpEqual;
+            default:
+                return IrOp.JumpNotEqual;
+        }
+    }
+
+    private void expression(Node node) {
+        switch (node.type) {
+            case IntLiteral:
+                code.add(IrOp.PushInt, node.value);
+                break;
+            case CharLiteral:
+                code.add(IrOp.PushChar, node.value);
+                break;
+            case Load:
+                code.add(IrOp.Address, node.symbol);
+                code.add(IrOp.Load);
+                break;
+            case Call:
+                for (Node argument : node.children) {
+                    expression(argument);
+                }
+                code.add(IrOp.Call, node.symbol);
+                break;
+            case Binary:
+                expression(node.children[0]);
+                expression(node.children[1]);
+                code.add(arithmetic(node.operator));
+                break;
+            case Negate:
+                expression(node.children[0]);
+                code.add(IrOp.Neg);
+                break;
+            case ToChar:
+                expression(node.children[0]);
+                code.add(IrOp.ToChar);
+                break;
+            default:
+                throw new IllegalArgumentException("不是表达式: " + node.type);
+        }
+    }
+
+    // 转换为 char 的表达式，常量折叠后直接压入
+    private void charExpression(Node node) {
+        Node folded = Folding.toChar(node);
+        if (folded != null) {
+            code.add(IrOp.PushChar, folded.value);
+        } else {
+            expression(node);
+            code.add(IrOp.ToChar);
+        }
+    }
+
+    static IrOp arithmetic(WordSymbol operator) {
+        switch (operator) {
+            case Plus:
+                return IrOp.Add;
+            case Minus:
+                return IrOp.Sub;
+            case Multi:
+                return IrOp.Mul;
+            default:
+                return IrOp.Div;
+        }
+    }
+}
@@ -7,22 +7,22 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 public class FunctionSymbol extends Symbol {
-    private HashMap<String, VariableSymbol> argsMap;
+    private HashMap<Integer, VariableSymbol> argsMap;
     private ArrayList<VariableSymbol> args;
     private int variableOffset; // 函数内定义的变量偏移
 
     public FunctionSymbol(String name, SymbolType symbolType, DataType dataType,
-                          int level, int offset, int lineOffset, int wordOffset) {
-        super(name, symbolType, dataType, level, offset, lineOffset, wordOffset);
+                          int level, int offset, int position) {
+        super(name, symbolType, dataType, level, offset, position);
         this.argsMap = new HashMap<>();
         this.args = new ArrayList<>();
     }
 
-    public void addArgs(String token, VariableSymbol variableSymbol) throws SyntaxException {
-        if (argsMap.containsKey(token)) {
+    public void addArgs(int identifier, VariableSymbol variableSymbol) throws SyntaxException {
+        if (argsMap.containsKey(identifier)) {
             throw new SyntaxException(SyntaxError.DuplicateSymbol);
         }
-        argsMap.put(token, variableSymbol);
+        argsMap.put(identifier, variableSymbol);
         args.add(variableSymbol);
     }
 
@@ -6,17 +6,19 @@ public class Symbol {
     String name;
     public int level;
     public int offset; // 在当前层的偏移量
-    int lineOffset;
-    int wordOffset;
+    int position; // 在源码中的偏移，报告错误时再换算成行列
 
     Symbol(String name, SymbolType symbolType, DataType dataType,
-           int level, int offset, int lineOffset, int wordOffset) {
+           int level, int offset, int position) {
         this.name = name;
         this.symbolType = symbolType;
         this.dataType = dataType;
         this.level = level;
         this.offset = offset;
-        this.lineOffset = lineOffset;
-        this.wordOffset = wordOffset;
+        this.position = position;
+    }
+
+    public String getName() {
+        return name;
     }
 }
@@ -3,112 +3,155 @@ package SymbolTable;
 import SyntaxAnalyzer.SyntaxError;
 import SyntaxAnalyzer.SyntaxException;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
+// 所有层共用一张按标识符编号索引的表，每个标识符对应一个绑定栈，栈顶是最内层的符号
+// 绑定按加入的顺序记下，同时是撤销记录，退出一层时弹出这一层加入的绑定，查找的代价与嵌套层数无关
+// 函数只在最外层，同名的全局变量不能与它共存，所以栈顶是函数时这个标识符没有变量
 public class SymbolTable {
-    public static ArrayList<HashMap<String, Symbol>> tables = new ArrayList<>();
+    private final SymbolTable globals; // 并行分析函数体时共用的最外层，只读
+    private int[] heads = new int[64]; // 标识符编号对应的栈顶绑定下标 + 1，0 表示没有
+    private Symbol[] symbols = new Symbol[64];
+    private int[] identifiers = new int[64];
+    private int[] shadowed = new int[64]; // 同一标识符被遮住的绑定下标 + 1
+    private int count = 0;
+    private int[] marks = new int[16]; // 各层开始时的绑定个数
+    private int depth = 0;
 
-    public static void nextLevel() {
-        tables.add(new HashMap<>());
+    public SymbolTable() {
+        globals = null;
     }
 
-    public static void prevLevel() {
-        tables.remove(tables.size() - 1);
+    // 在本表中找不到的标识符再到 globals 中找，并行分析函数体时各个线程只读全局符号
+    public SymbolTable(SymbolTable globals) {
+        this.globals = globals;
     }
 
-    public static void insertVariableSymbol(int level, String token, boolean initialized, SymbolType symbolType, DataType dataType,
-                                            int offset, int lineOffset, int wordOffset) throws SyntaxException {
-        HashMap<String, Symbol> symbolTable;
-        symbolTable = tables.get(level);
-        if (symbolTable.containsKey(token)) {
-            throw new SyntaxException(SyntaxError.DuplicateSymbol);
-        } else {
-            symbolTable.put(token, new VariableSymbol(token, initialized, symbolType, dataType, level, offset, lineOffset, wordOffset));
+    public void nextLevel() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
         }
+        marks[depth++] = count;
     }
 
-    public static FunctionSymbol insertFunctionSymbol(String token, SymbolType symbolType, DataType dataType,
-                                                      int offset, int lineOffset, int wordOffset) throws SyntaxException {
-        int level = 0;
-        HashMap<String, Symbol> symbolTable;
-        FunctionSymbol functionSymbol;
-        symbolTable = tables.get(level);
-        if (symbolTable.containsKey(token)) {
-            throw new SyntaxException(SyntaxError.DuplicateSymbol);
-        } else {
-            functionSymbol = new FunctionSymbol(token, symbolType, dataType, level, offset, lineOffset, wordOffset);
-            symbolTable.put(token, functionSymbol);
-            return functionSymbol;
+    // 接上另一个符号表中保存的一层，例如函数的参数
+    public void nextLevel(HashMap<Integer, Symbol> symbolTable) {
+        nextLevel();
+        for (HashMap.Entry<Integer, Symbol> entry : symbolTable.entrySet()) {
+            bind(entry.getKey(), entry.getValue());
         }
     }
 
-    public static void updateFunctionSymbol(String functionName, String token, SymbolType symbolType, DataType dataType,
-                                            int offset, int lineOffset, int wordOffset) throws SyntaxException {
-        HashMap<String, Symbol> symbolTable;
-        FunctionSymbol functionSymbol;
-        symbolTable = tables.get(0);
-        if (!symbolTable.containsKey(functionName)) {
-            throw new SyntaxException(SyntaxError.SymbolNotFound);
+    public void prevLevel() {
+        int mark = marks[--depth];
+        while (count > mark) {
+            --count;
+            heads[identifiers[count]] = shadowed[count];
+            symbols[count] = null;
         }
-        Symbol symbol = symbolTable.get(functionName);
-        if (symbol instanceof FunctionSymbol) {
-            functionSymbol = (FunctionSymbol) symbol;
-        } else {
-            throw new SyntaxException(SyntaxError.UnknownError);
+    }
+
+    // 当前层的全部符号，只在需要把这一层接到另一个符号表时使用
+    public HashMap<Integer, Symbol> levelSymbols() {
+        HashMap<Integer, Symbol> symbolTable = new HashMap<>();
+        for (int i = marks[depth - 1]; i < count; ++i) {
+            symbolTable.put(identifiers[i], symbols[i]);
         }
-        functionSymbol.addArgs(token, new VariableSymbol(token, true, symbolType, dataType, 1, offset, lineOffset, wordOffset));
-    }
-
-    public static VariableSymbol findVariableSymbol(String symbolName) {
-        HashMap<String, Symbol> symbolTable;
-        for (int i = tables.size() - 1; i >= 0; --i) {
-            symbolTable = tables.get(i);
-            if (symbolTable.containsKey(symbolName)) {
-                Symbol symbol = symbolTable.get(symbolName);
-                if (symbol instanceof VariableSymbol) {
-                    return (VariableSymbol) symbol;
-                }
-            }
+        return symbolTable;
+    }
+
+    private int head(int identifier) {
+        return identifier < heads.length ? heads[identifier] : 0;
+    }
+
+    private void bind(int identifier, Symbol symbol) {
+        if (identifier >= heads.length) {
+            heads = Arrays.copyOf(heads, Math.max(identifier + 1, heads.length * 2));
+        }
+        if (count == symbols.length) {
+            symbols = Arrays.copyOf(symbols, count * 2);
+            identifiers = Arrays.copyOf(identifiers, count * 2);
+            shadowed = Arrays.copyOf(shadowed, count * 2);
+        }
+        symbols[count] = symbol;
+        identifiers[count] = identifier;
+        shadowed[count] = heads[identifier];
+        heads[identifier] = ++count;
+    }
+
+    // 第 level 层中的符号，level 不超过当前层
+    private Symbol find(int identifier, int level) {
+        int binding = head(identifier);
+        while (binding != 0 && symbols[binding - 1].level > level) {
+            binding = shadowed[binding - 1];
         }
-        return null;
-    }
-
-    public static FunctionSymbol findFunctionSymbol(String symbolName) {
-        HashMap<String, Symbol> symbolTable;
-        for (int i = tables.size() - 1; i >= 0; --i) {
-            symbolTable = tables.get(i);
-            if (symbolTable.containsKey(symbolName)) {
-                Symbol symbol = symbolTable.get(symbolName);
-                if (symbol instanceof FunctionSymbol) {
-                    return (FunctionSymbol) symbol;
-                }
-            }
+        if (binding != 0) {
+            Symbol symbol = symbols[binding - 1];
+            return symbol.level == level ? symbol : null;
         }
-        return null;
+        return globals != null && level == 0 ? globals.find(identifier, 0) : null;
     }
 
-    public static VariableSymbol findVariableSymbol(String symbolName, int level) {
-        HashMap<String, Symbol> symbolTable;
-        symbolTable = tables.get(level);
-        if (symbolTable.containsKey(symbolName)) {
-            Symbol symbol = symbolTable.get(symbolName);
-            if (symbol instanceof VariableSymbol) {
-                return (VariableSymbol) symbol;
-            }
+    // 最内层的变量或函数，只查一次
+    public Symbol find(int identifier) {
+        int binding = head(identifier);
+        if (binding != 0) {
+            return symbols[binding - 1];
         }
-        return null;
+        return globals != null ? globals.find(identifier) : null;
     }
 
-    public static FunctionSymbol findFunctionSymbol(String symbolName, int level) {
-        HashMap<String, Symbol> symbolTable;
-        symbolTable = tables.get(level);
-        if (symbolTable.containsKey(symbolName)) {
-            Symbol symbol = symbolTable.get(symbolName);
-            if (symbol instanceof FunctionSymbol) {
-                return (FunctionSymbol) symbol;
-            }
+    public VariableSymbol insertVariableSymbol(int level, int identifier, String token, boolean initialized, SymbolType symbolType, DataType dataType,
+                                               int offset, int position) throws SyntaxException {
+        if (find(identifier, level) != null) {
+            throw new SyntaxException(SyntaxError.DuplicateSymbol);
         }
-        return null;
+        VariableSymbol variableSymbol = new VariableSymbol(token, initialized, symbolType, dataType, level, offset, position);
+        bind(identifier, variableSymbol);
+        return variableSymbol;
+    }
+
+    public FunctionSymbol insertFunctionSymbol(int identifier, String token, SymbolType symbolType, DataType dataType,
+                                               int offset, int position) throws SyntaxException {
+        if (find(identifier, 0) != null) {
+            throw new SyntaxException(SyntaxError.DuplicateSymbol);
+        }
+        FunctionSymbol functionSymbol = new FunctionSymbol(token, symbolType, dataType, 0, offset, position);
+        bind(identifier, functionSymbol);
+        return functionSymbol;
+    }
+
+    public void updateFunctionSymbol(int functionIdentifier, int identifier, String token, SymbolType symbolType, DataType dataType,
+                                     int offset, int position) throws SyntaxException {
+        Symbol symbol = find(functionIdentifier, 0);
+        if (symbol == null) {
+            throw new SyntaxException(SyntaxError.SymbolNotFound);
+        }
+        if (!(symbol instanceof FunctionSymbol)) {
+            throw new SyntaxException(SyntaxError.UnknownError);
+        }
+        ((FunctionSymbol) symbol).addArgs(identifier, new VariableSymbol(token, true, symbolType, dataType, 1, offset, position));
+    }
+
+    public VariableSymbol findVariableSymbol(int identifier) {
+        Symbol symbol = find(identifier);
+        return symbol instanceof VariableSymbol ? (VariableSymbol) symbol : null;
+    }
+
+    // 同名的局部变量可以遮住函数，函数在栈底
+    public FunctionSymbol findFunctionSymbol(int identifier) {
+        Symbol symbol = find(identifier, 0);
+        return symbol instanceof FunctionSymbol ? (FunctionSymbol) symbol : null;
+    }
+
+    public VariableSymbol findVariableSymbol(int identifier, int level) {
+        Symbol symbol = find(identifier, level);
+        return symbol instanceof VariableSymbol ? (VariableSymbol) symbol : null;
+    }
+
+    public FunctionSymbol findFunctionSymbol(int identifier, int level) {
+        Symbol symbol = find(identifier, level);
+        return symbol instanceof FunctionSymbol ? (FunctionSymbol) symbol : null;
     }
 }
@@ -2,10 +2,12 @@ package SymbolTable;
 
 public class VariableSymbol extends Symbol {
     boolean initialized;
+    private boolean inlined; // 常量的初值在编译时已知，使用处直接换成字面量，不占用存储单元
+    private int value;
 
     public VariableSymbol(String name, boolean initialized, SymbolType symbolType, DataType dataType,
-                          int level, int offset, int lineOffset, int wordOffset) {
-        super(name, symbolType, dataType, level, offset, lineOffset, wordOffset);
+                          int level, int offset, int position) {
+        super(name, symbolType, dataType, level, offset, position);
         this.initialized = initialized;
     }
 
@@ -16,4 +18,17 @@ public class VariableSymbol extends Symbol {
     public boolean isInitialized() {
         return initialized;
     }
+
+    public void setValue(int value) {
+        this.inlined = true;
+        this.value = value;
+    }
+
+    public boolean isInlined() {
+        return inlined;
+    }
+
+    public int getValue() {
+        return value;
+    }
 }
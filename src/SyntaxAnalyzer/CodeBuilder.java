@@ -0,0 +1,86 @@
+package SyntaxAnalyzer;
+
+import SymbolTable.FunctionSymbol;
+import SymbolTable.VariableSymbol;
+import WordAnalyzer.WordSymbol;
+
+// 语法分析器识别出的各个成分，按源码中的顺序通知
+// DirectCodeBuilder 直接生成指令，TreeBuilder 建立语法树
+interface CodeBuilder {
+    // 变量说明，initialized 为 true 时初值表达式已经通知过
+    void variable(VariableSymbol variable, boolean initialized);
+
+    // 常量的初值表达式已经通知过，初值在编译时已知时记下它的值并返回 true，这时不再通知 variable
+    boolean constant(VariableSymbol constant);
+
+    // 参数已经分析完
+    void functionBegin(int identifier, FunctionSymbol function);
+
+    void functionEnd(FunctionSymbol function);
+
+    void blockBegin();
+
+    // variables 是块内说明的变量个数
+    void blockEnd(int variables);
+
+    // 作为语句的函数调用，调用表达式已经通知过
+    void callStatement(FunctionSymbol function);
+
+    // 赋值语句开始，之后是右边的表达式
+    void assignBegin(VariableSymbol variable);
+
+    void assignEnd(VariableSymbol variable);
+
+    // 条件，relation 为 null 时只有一个表达式
+    void condition(WordSymbol relation);
+
+    // 条件之后、分支语句之前
+    void ifBegin();
+
+    void elseBegin();
+
+    void ifEnd();
+
+    // 条件之前
+    void whileBegin();
+
+    // 条件之后、循环体之前
+    void whileBody();
+
+    void whileEnd();
+
+    // 返回值表达式已经通知过
+    void returnValue(FunctionSymbol function);
+
+    void returnVoid();
+
+    void scan(VariableSymbol variable);
+
+    void printBegin();
+
+    void printString(String string);
+
+    // 表达式已经通知过，isChar 为 true 时按字符输出
+    void printValue(boolean isChar);
+
+    // 两项之间的空格
+    void printSeparator();
+
+    void printEnd();
+
+    void intLiteral(int value);
+
+    void charLiteral(int value);
+
+    void load(VariableSymbol variable);
+
+    // 实参表达式已经依次通知过
+    void call(FunctionSymbol function, int arguments);
+
+    // 加减乘除
+    void binary(WordSymbol operator);
+
+    void negate();
+
+    void toChar();
+}
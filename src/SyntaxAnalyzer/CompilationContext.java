@@ -0,0 +1,77 @@
+package SyntaxAnalyzer;
+
+import InstructionWriter.InstructionWriter;
+import SymbolTable.Symbol;
+import SymbolTable.SymbolTable;
+
+import java.io.PrintStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+
+// 一次编译的全部状态：符号表、指令写入器 (含常量表)、输出目标和错误信息的去处
+// 不同的编译各用一个，可以在同一个进程的多个线程中同时编译
+public class CompilationContext {
+    private final String outputPath; // 为 null 且 channel 为 null 时输出到标准输出
+    private final WritableByteChannel channel;
+    private final PrintStream err;
+    private boolean wide = false;
+    private SymbolTable symbolTable;
+    private InstructionWriter instructionWriter;
+
+    public CompilationContext() {
+        this(null, null, System.err);
+    }
+
+    public CompilationContext(String outputPath) {
+        this(outputPath, null, System.err);
+    }
+
+    // 输出写入 channel，写完不关闭；错误信息写入 err
+    public CompilationContext(WritableByteChannel channel, PrintStream err) {
+        this(null, channel, err);
+    }
+
+    private CompilationContext(String outputPath, WritableByteChannel channel, PrintStream err) {
+        this.outputPath = outputPath;
+        this.channel = channel;
+        this.err = err;
+        reset();
+    }
+
+    // 并行分析一个函数体用的上下文，最外层与 parent 共用，接上参数所在的一层，指令写入单独的写入器
+    CompilationContext(CompilationContext parent, HashMap<Integer, Symbol> parameters) {
+        outputPath = null;
+        channel = null;
+        err = parent.err;
+        symbolTable = new SymbolTable(parent.symbolTable);
+        symbolTable.nextLevel(parameters);
+        instructionWriter = new InstructionWriter();
+    }
+
+    // 丢掉之前分析得到的符号和指令，中途出错的编译不会把作用域和常量留给下一次
+    public void reset() {
+        symbolTable = new SymbolTable();
+        symbolTable.nextLevel();
+        instructionWriter = channel != null ? new InstructionWriter(channel) : new InstructionWriter(outputPath);
+        instructionWriter.setWide(wide);
+        instructionWriter.setErrorStream(err);
+    }
+
+    // 二进制目标文件使用宽格式
+    public void setWide(boolean wide) {
+        this.wide = wide;
+        instructionWriter.setWide(wide);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public InstructionWriter getInstructionWriter() {
+        return instructionWriter;
+    }
+
+    public PrintStream getErrorStream() {
+        return err;
+    }
+}
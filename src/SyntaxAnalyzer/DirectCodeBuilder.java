@@ -0,0 +1,252 @@
+package SyntaxAnalyzer;
+
+import InstructionWriter.InstructionWriter;
+import InstructionWriter.Instructions;
+import SymbolTable.DataType;
+import SymbolTable.FunctionSymbol;
+import SymbolTable.VariableSymbol;
+import WordAnalyzer.WordSymbol;
+
+import java.util.Arrays;
+
+// 边分析边生成指令，不建立语法树，对应 -O0
+class DirectCodeBuilder implements CodeBuilder {
+    private final InstructionWriter instructionWriter;
+    private int level = 0; // 0 时写入 .start
+    private Instructions jump; // 最近一个条件不成立时的跳转指令
+    private int[] labels = new int[16]; // 还未绑定的 if、while 标签
+    private int labelCount = 0;
+
+    DirectCodeBuilder(InstructionWriter instructionWriter) {
+        this.instructionWriter = instructionWriter;
+    }
+
+    private void write(Instructions instructions) {
+        instructionWriter.write(level, instructions);
+    }
+
+    private void write(Instructions instructions, int x) {
+        instructionWriter.write(level, instructions, x);
+    }
+
+    // 局部变量层次差为 0，全局变量为 1
+    private void address(VariableSymbol variable) {
+        instructionWriter.write(level, Instructions.loada, variable.level >= 1 ? 0 : 1, variable.offset);
+    }
+
+    private void pushLabel(int label) {
+        if (labelCount == labels.length) {
+            labels = Arrays.copyOf(labels, labelCount * 2);
+        }
+        labels[labelCount++] = label;
+    }
+
+    private int popLabel() {
+        return labels[--labelCount];
+    }
+
+    @Override
+    public void variable(VariableSymbol variable, boolean initialized) {
+        if (!initialized) {
+            write(Instructions.bipush, 0);
+        } else if (variable.dataType == DataType.Char) {
+            write(Instructions.i2c);
+        }
+    }
+
+    // 常量也按变量分配存储单元
+    @Override
+    public boolean constant(VariableSymbol constant) {
+        return false;
+    }
+
+    @Override
+    public void functionBegin(int identifier, FunctionSymbol function) {
+        int constantIndex = instructionWriter.writeConstants(identifier, function.getName());
+        instructionWriter.newFunction();
+        instructionWriter.writeFunctions(function.offset, constantIndex, function.getArgsSize());
+        level = 1;
+        labelCount = 0;
+    }
+
+    @Override
+    public void functionEnd(FunctionSymbol function) {
+        if (function.dataType == DataType.Void) {
+            write(Instructions.ret);
+        } else if (function.dataType == DataType.Char) {
+            write(Instructions.bipush, 0);
+            write(Instructions.iret);
+        } else {
+            write(Instructions.ipush, 0);
+            write(Instructions.iret);
+        }
+        level = 0;
+    }
+
+    @Override
+    public void blockBegin() {
+    }
+
+    @Override
+    public void blockEnd(int variables) {
+        if (variables != 0) {
+            write(Instructions.popn, variables);
+        }
+    }
+
+    // 如果调用者不需要返回值，执行 pop 系列指令清除调用者栈帧得到的返回值
+    @Override
+    public void callStatement(FunctionSymbol function) {
+        if (function.dataType != DataType.Void) {
+            write(Instructions.pop);
+        }
+    }
+
+    @Override
+    public void assignBegin(VariableSymbol variable) {
+        address(variable);
+    }
+
+    @Override
+    public void assignEnd(VariableSymbol variable) {
+        write(Instructions.istore);
+    }
+
+    @Override
+    public void condition(WordSymbol relation) {
+        if (relation == null) {
+            jump = Instructions.je;
+            return;
+        }
+        write(Instructions.icmp);
+        jump = Utils.falseJump(relation);
+    }
+
+    @Override
+    public void ifBegin() {
+        int elseLabel = instructionWriter.newLabel();
+        instructionWriter.writeJump(jump, elseLabel);
+        pushLabel(elseLabel);
+    }
+
+    @Override
+    public void elseBegin() {
+        int elseLabel = popLabel();
+        int endLabel = instructionWriter.newLabel();
+        instructionWriter.writeJump(Instructions.jmp, endLabel);
+        instructionWriter.bindLabel(elseLabel);
+        pushLabel(endLabel);
+    }
+
+    @Override
+    public void ifEnd() {
+        instructionWriter.bindLabel(popLabel());
+    }
+
+    @Override
+    public void whileBegin() {
+        int loopLabel = instructionWriter.newLabel();
+        instructionWriter.bindLabel(loopLabel);
+        pushLabel(loopLabel);
+    }
+
+    @Override
+    public void whileBody() {
+        int endLabel = instructionWriter.newLabel();
+        instructionWriter.writeJump(jump, endLabel);
+        pushLabel(endLabel);
+    }
+
+    @Override
+    public void whileEnd() {
+        int endLabel = popLabel();
+        instructionWriter.writeJump(Instructions.jmp, popLabel());
+        instructionWriter.bindLabel(endLabel);
+    }
+
+    @Override
+    public void returnValue(FunctionSymbol function) {
+        if (function.dataType == DataType.Char) {
+            write(Instructions.i2c);
+        }
+        write(Instructions.iret);
+    }
+
+    @Override
+    public void returnVoid() {
+        write(Instructions.ret);
+    }
+
+    @Override
+    public void scan(VariableSymbol variable) {
+        address(variable);
+        if (variable.dataType == DataType.Char) {
+            write(Instructions.cscan);
+        } else {
+            write(Instructions.iscan);
+        }
+        write(Instructions.istore);
+    }
+
+    @Override
+    public void printBegin() {
+    }
+
+    @Override
+    public void printString(String string) {
+        write(Instructions.loadc, instructionWriter.writeConstants(string));
+        write(Instructions.sprint);
+    }
+
+    @Override
+    public void printValue(boolean isChar) {
+        write(isChar ? Instructions.cprint : Instructions.iprint);
+    }
+
+    @Override
+    public void printSeparator() {
+        write(Instructions.bipush, 32);
+        write(Instructions.cprint);
+    }
+
+    @Override
+    public void printEnd() {
+        write(Instructions.printl);
+    }
+
+    @Override
+    public void intLiteral(int value) {
+        write(Instructions.ipush, value);
+    }
+
+    @Override
+    public void charLiteral(int value) {
+        write(Instructions.bipush, value);
+    }
+
+    @Override
+    public void load(VariableSymbol variable) {
+        address(variable);
+        write(Instructions.iload);
+    }
+
+    @Override
+    public void call(FunctionSymbol function, int arguments) {
+        write(Instructions.call, function.offset);
+    }
+
+    @Override
+    public void binary(WordSymbol operator) {
+        write(Utils.arithmetic(operator));
+    }
+
+    @Override
+    public void negate() {
+        write(Instructions.ineg);
+    }
+
+    @Override
+    public void toChar() {
+        write(Instructions.i2c);
+    }
+}
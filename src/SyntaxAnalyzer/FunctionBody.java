@@ -0,0 +1,26 @@
+package SyntaxAnalyzer;
+
+import InstructionWriter.InstructionWriter;
+import SymbolTable.FunctionSymbol;
+import SymbolTable.Symbol;
+import SymbolTable.VariableSymbol;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+// 分析完函数头之后的函数，并行编译时还记下函数体的位置和工作线程的结果
+class FunctionBody {
+    final int identifier; // 函数名的标识符编号
+    final FunctionSymbol symbol;
+    int start; // 函数体左花括号的单词下标
+    int end; // 与之配对的右花括号的单词下标
+    HashMap<Integer, Symbol> parameters; // 参数所在的一层符号表
+    InstructionWriter writer; // 只含这个函数的指令和常量，出错时为 null
+    HashSet<VariableSymbol> assigned; // 函数中赋过值的全局变量
+    HashSet<VariableSymbol> required; // 要求前面的函数已经赋过值的全局变量
+
+    FunctionBody(int identifier, FunctionSymbol symbol) {
+        this.identifier = identifier;
+        this.symbol = symbol;
+    }
+}
@@ -1,99 +1,304 @@
 package SyntaxAnalyzer;
 
 import InstructionWriter.InstructionWriter;
-import InstructionWriter.Instructions;
+import InstructionWriter.Peephole;
+import InstructionWriter.PeepholeRules;
+import IntermediateCode.CodeGenerator;
 import SymbolTable.DataType;
 import SymbolTable.FunctionSymbol;
+import SymbolTable.Symbol;
+import SymbolTable.SymbolTable;
 import SymbolTable.SymbolType;
 import SymbolTable.VariableSymbol;
+import WordAnalyzer.Identifiers;
+import WordAnalyzer.ParallelTokenizer;
+import WordAnalyzer.TokenSource;
+import WordAnalyzer.TokenStream;
 import WordAnalyzer.WordAnalyzer;
 import WordAnalyzer.WordException;
 import WordAnalyzer.WordSymbol;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import static SymbolTable.SymbolTable.*;
-import static SyntaxAnalyzer.Utils.tokenToDataType;
+import static SyntaxAnalyzer.Utils.symbolToDataType;
 
 public class SyntaxAnalyzer {
-    public String token;
-    public int lineOffset;
-    public int wordOffset;
     public SyntaxError error;
     private WordAnalyzer wordAnalyzer;
+    private Identifiers identifiers;
     private InstructionWriter instructionWriter;
     private WordSymbol wordSymbol;
-    private ArrayList<NextWord> buf = new ArrayList<>();
+    private static final int MAX_UNREAD = 3; // variableDeclaration 中最多连续回退三个单词
+    private TokenSource buf;
     private int cursor = -1;
     private int level = 0;
     private int startOffset = 0;
     private int functionOffset = 0;
+    private int threads = 1;
+    private int optimization = 2;
+    private CodeBuilder builder;
+    private final CompilationContext context;
+    private SymbolTable symbolTable;
+    // 并行分析函数体时不改动共用的全局变量符号，顺序分析时为 null
+    private HashSet<VariableSymbol> assignedGlobals; // 本函数中赋过值的全局变量
+    private HashSet<VariableSymbol> requiredGlobals; // 在本函数中赋值之前就读的、声明时没有初值的全局变量
 
     public SyntaxAnalyzer(WordAnalyzer wordAnalyzer) {
-        this.wordAnalyzer = wordAnalyzer;
-        instructionWriter = new InstructionWriter();
+        this(wordAnalyzer, new CompilationContext());
     }
 
     public SyntaxAnalyzer(WordAnalyzer wordAnalyzer, String outputPath) {
+        this(wordAnalyzer, new CompilationContext(outputPath));
+    }
+
+    // 符号表、指令和输出都放在 context 中，每次分析前清空
+    public SyntaxAnalyzer(WordAnalyzer wordAnalyzer, CompilationContext context) {
         this.wordAnalyzer = wordAnalyzer;
-        instructionWriter = new InstructionWriter(outputPath);
+        this.identifiers = wordAnalyzer.getIdentifiers();
+        this.context = context;
+    }
+
+    // 在工作线程中分析 function 的函数体，与 parent 共用单词和全局符号，指令写入单独的写入器
+    private SyntaxAnalyzer(SyntaxAnalyzer parent, FunctionBody function) {
+        wordAnalyzer = parent.wordAnalyzer;
+        identifiers = parent.identifiers;
+        buf = parent.buf;
+        optimization = parent.optimization;
+        context = new CompilationContext(parent.context, function.parameters);
+        instructionWriter = context.getInstructionWriter();
+        symbolTable = context.getSymbolTable();
+        cursor = function.start - 1;
+        level = 1;
+        functionOffset = function.symbol.offset;
+        assignedGlobals = new HashSet<>();
+        requiredGlobals = new HashSet<>();
     }
 
     private void read() {
         ++cursor;
-        NextWord nextWord = buf.get(cursor);
-        token = nextWord.token;
-        wordSymbol = nextWord.symbolType;
-        lineOffset = nextWord.lineOffset;
-        wordOffset = nextWord.wordOffset;
+        wordSymbol = buf.symbol(cursor);
     }
 
     private void unread() {
         if (cursor > 0) {
             --cursor;
-            NextWord nextWord = buf.get(cursor);
-            token = nextWord.token;
-            wordSymbol = nextWord.symbolType;
-            lineOffset = nextWord.lineOffset;
-            wordOffset = nextWord.wordOffset;
+            wordSymbol = buf.symbol(cursor);
         } else if (cursor == 0) {
             --cursor;
-            token = null;
             wordSymbol = null;
-            lineOffset = 1;
-            wordOffset = 0;
         } else {
             error = SyntaxError.UnreadError;
         }
     }
 
+    // 当前单词的文本，只在用到时才生成
+    private String token() {
+        if (cursor < 0) {
+            return null;
+        }
+        return buf.text(cursor);
+    }
+
+    // 当前单词在源码中的偏移
+    private int position() {
+        return buf.offset(cursor);
+    }
+
+    // 当前单词最后一个字符所在的行列，只在报告错误时换算
+    private String location() {
+        if (cursor < 0) {
+            return "1:0";
+        }
+        int offset = buf.offset(cursor) + buf.length(cursor) - 1;
+        return wordAnalyzer.getLine(offset) + ":" + wordAnalyzer.getColumn(offset);
+    }
+
+    // 当前标识符的编号
+    private int identifier() {
+        return buf.value(cursor);
+    }
+
+    // 大于 1 时把源文件分块并行做词法分析，各个函数也并行分析、生成指令
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    // 0 时边分析边生成指令；否则先建立语法树，翻译为中间代码后再生成指令，2 时再对每个函数做窥孔优化，并删去 main 用不到的函数
+    public void setOptimization(int optimization) {
+        this.optimization = optimization;
+    }
+
+    // 二进制目标文件使用宽格式
+    public void setWideFormat(boolean wide) {
+        context.setWide(wide);
+    }
+
     public void start(boolean text) {
-        try {
-            wordAnalyzer.getsym();
-            while (wordAnalyzer.symbol != WordSymbol.EOF) {
-                buf.add(new NextWord(wordAnalyzer.token, wordAnalyzer.symbol, wordAnalyzer.lineOffset, wordAnalyzer.wordOffset));
-                wordAnalyzer.getsym();
-            }
-            buf.add(new NextWord(wordAnalyzer.token, wordAnalyzer.symbol, wordAnalyzer.lineOffset, wordAnalyzer.wordOffset));
-        } catch (WordException e) {
-            System.err.println(e.getMessage() + " at " + wordAnalyzer.lineOffset + ":" + (wordAnalyzer.wordOffset - wordAnalyzer.token.length() + 1) + " word: " + wordAnalyzer.token);
+        start(text, false);
+    }
+
+    public void start(boolean text, boolean streaming) {
+        if (!analyze(streaming)) {
             return;
         }
-        nextLevel();
+        if (text) {
+            instructionWriter.output();
+        } else {
+            instructionWriter.assemble();
+        }
+    }
+
+    // 只做词法、语法分析并生成指令，不输出，出错时报告错误并返回 false
+    // streaming 为 true 时词法分析在单独的线程中进行，语法分析器从有界的环形缓冲区中读单词
+    public boolean analyze(boolean streaming) {
+        TokenStream stream = null;
+        ForkJoinPool pool = null;
+        if (streaming) {
+            stream = new TokenStream(wordAnalyzer, MAX_UNREAD, 1024);
+            stream.start();
+            buf = stream;
+        } else if (threads > 1) {
+            ParallelTokenizer tokenizer = new ParallelTokenizer(wordAnalyzer, threads * 4);
+            pool = new ForkJoinPool(threads);
+            try {
+                buf = tokenizer.tokenize(pool);
+            } catch (WordException e) {
+                context.getErrorStream().println(tokenizer.getErrorMessage());
+                pool.shutdown();
+                return false;
+            }
+        } else {
+            try {
+                buf = wordAnalyzer.tokenize();
+            } catch (WordException e) {
+                context.getErrorStream().println(wordAnalyzer.getErrorMessage(e));
+                return false;
+            }
+        }
+        try {
+            // 并行编译出错时丢掉生成的指令，按顺序重新分析一遍，报告的错误与顺序编译相同
+            boolean success = (pool != null && analyzeParallel(pool)) || analyzeSequential(stream);
+            // 全部函数都生成之后才知道哪些函数用不到
+            if (success && optimization > 1) {
+                instructionWriter.removeUnusedFunctions();
+            }
+            return success;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // 每次分析都从空的符号表和指令开始
+    private void begin() {
+        cursor = -1;
+        level = 0;
+        startOffset = 0;
+        functionOffset = 0;
+        context.reset();
+        symbolTable = context.getSymbolTable();
+        instructionWriter = context.getInstructionWriter();
+    }
+
+    private CodeBuilder newBuilder() {
+        return optimization > 0 ? new TreeBuilder() : new DirectCodeBuilder(instructionWriter);
+    }
+
+    private CodeGenerator newCodeGenerator() {
+        return new CodeGenerator(instructionWriter, optimization > 1 ? new Peephole(PeepholeRules.defaults()) : null);
+    }
+
+    private boolean analyzeSequential(TokenStream stream) {
+        begin();
+        builder = newBuilder();
         try {
-            program();
-            if (text) {
-                instructionWriter.output();
+            program(null);
+            if (stream != null && stream.failed()) {
+                printWordError(stream);
+                return false;
+            }
+            if (builder instanceof TreeBuilder) {
+                newCodeGenerator().generate(((TreeBuilder) builder).getProgram());
+            }
+            return true;
+        } catch (SyntaxException e) {
+            if (stream != null && stream.failed()) {
+                printWordError(stream);
             } else {
-                instructionWriter.assemble();
+                context.getErrorStream().println(e.getMessage() + " at " + location() + " word: " + token());
+            }
+            return false;
+        } finally {
+            if (stream != null) {
+                stream.close();
             }
+        }
+    }
+
+    // 函数体只依赖全局变量和在它之前定义的函数的参数，先分析全局变量说明和所有函数头，
+    // 再在 pool 中并行分析各个函数体、生成指令，最后按函数的顺序接起来，出错时返回 false
+    private boolean analyzeParallel(ForkJoinPool pool) {
+        begin();
+        builder = newBuilder();
+        ArrayList<FunctionBody> functions = new ArrayList<>();
+        try {
+            program(functions);
+        } catch (SyntaxException e) {
+            return false;
+        }
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (FunctionBody function : functions) {
+            tasks.add(pool.submit(() -> new SyntaxAnalyzer(this, function).compile(function)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        // 声明时没有初值的全局变量，要在前面的函数中赋过值，后面的函数才能读
+        HashSet<VariableSymbol> assigned = new HashSet<>();
+        for (FunctionBody function : functions) {
+            if (function.writer == null || !assigned.containsAll(function.required)) {
+                return false;
+            }
+            assigned.addAll(function.assigned);
+        }
+        if (builder instanceof TreeBuilder) {
+            newCodeGenerator().generate(((TreeBuilder) builder).getProgram());
+        }
+        for (FunctionBody function : functions) {
+            instructionWriter.append(function.writer);
+        }
+        return true;
+    }
+
+    // 在工作线程中分析函数体并生成指令，结果记在 function 中
+    private void compile(FunctionBody function) {
+        builder = newBuilder();
+        try {
+            functionBody(function);
         } catch (SyntaxException e) {
-            System.err.println(e.getMessage() + " at " + lineOffset + ":" + wordOffset + " word: " + token);
+            return;
+        }
+        if (cursor != function.end) {
+            return;
+        }
+        if (builder instanceof TreeBuilder) {
+            newCodeGenerator().generate(((TreeBuilder) builder).getProgram());
         }
+        function.assigned = assignedGlobals;
+        function.required = requiredGlobals;
+        function.writer = instructionWriter;
     }
 
-    // 程序
-    private void program() throws SyntaxException {
+    private void printWordError(TokenStream stream) {
+        context.getErrorStream().println(stream.getErrorMessage());
+    }
+
+    // 程序，functions 不为 null 时只分析函数头，跳过的函数体依次加入 functions
+    private void program(ArrayList<FunctionBody> functions) throws SyntaxException {
         while ((startOffset = variableDeclaration(startOffset)) != -1) {
         }
         while (true) {
@@ -103,14 +308,19 @@ public class SyntaxAnalyzer {
                 break;
             }
             unread();
-            if (!functionDefinition()) {
-                break;
+            FunctionBody function = functionHeader();
+            if (functions == null) {
+                functionBody(function);
+            } else {
+                skipFunctionBody(function);
+                functions.add(function);
             }
             ++functionOffset;
         }
         read();
         if (wordSymbol == WordSymbol.EOF) {
-            if (findFunctionSymbol("main") == null) {
+            int main = identifiers.find("main");
+            if (main < 0 || findFunctionSymbol(main) == null) {
                 throw new SyntaxException(SyntaxError.MissingMain);
             }
         }
@@ -120,9 +330,8 @@ public class SyntaxAnalyzer {
     private int variableDeclaration(int offset) throws SyntaxException {
         DataType dataType;
         SymbolType symbolType;
-        String identifier;
-        int lineOffsetOfIdentifier;
-        int wordOffsetOfIdentifier;
+        int identifier;
+        int positionOfIdentifier;
         read();
         if (wordSymbol == WordSymbol.Const) {
             symbolType = SymbolType.Constant;
@@ -147,10 +356,9 @@ public class SyntaxAnalyzer {
             if (wordSymbol != WordSymbol.Identifier) {
                 throw new SyntaxException(SyntaxError.ExpectIdentifier);
             }
-            identifier = token;
-            lineOffsetOfIdentifier = lineOffset;
-            wordOffsetOfIdentifier = wordOffset;
-            if (findVariableSymbol(identifier, level) != null) {
+            identifier = identifier();
+            positionOfIdentifier = position();
+            if (symbolTable.findVariableSymbol(identifier, level) != null) {
                 throw new SyntaxException(SyntaxError.DuplicateSymbol);
             }
             read();
@@ -158,9 +366,6 @@ public class SyntaxAnalyzer {
                 initialized = true;
                 // instructionWriter.write(level, Instructions.ipush, 0);
                 expression();
-                if (dataType == DataType.Char) {
-                    instructionWriter.write(level, Instructions.i2c);
-                }
                 // instructionWriter.write(level, Instructions.loada, 0, offset);
                 // instructionWriter.write(level, Instructions.istore);
             } else if (symbolType == SymbolType.Constant) {
@@ -173,29 +378,36 @@ public class SyntaxAnalyzer {
                 return -1;
             } else {
                 unread();
-                instructionWriter.write(level, Instructions.bipush, 0);
             }
             read();
             if (wordSymbol == WordSymbol.Semicolon) {
-                insertVariableSymbol(level, identifier, initialized, symbolType, dataType, offset++, lineOffsetOfIdentifier, wordOffsetOfIdentifier);
-                return offset;
+                return declare(identifier, initialized, symbolType, dataType, offset, positionOfIdentifier);
             } else if (wordSymbol == WordSymbol.Comma) {
-                insertVariableSymbol(level, identifier, initialized, symbolType, dataType, offset++, lineOffsetOfIdentifier, wordOffsetOfIdentifier);
+                offset = declare(identifier, initialized, symbolType, dataType, offset, positionOfIdentifier);
             } else {
                 throw new SyntaxException(SyntaxError.ExpectCorrectSeparator);
             }
         }
     }
 
-    // 函数定义部分
-    private boolean functionDefinition() throws SyntaxException {
+    // 加入符号表并通知生成器，返回下一个存储单元的偏移，初值在编译时已知的常量不占用存储单元
+    private int declare(int identifier, boolean initialized, SymbolType symbolType, DataType dataType, int offset, int position) throws SyntaxException {
+        VariableSymbol variableSymbol = symbolTable.insertVariableSymbol(level, identifier, identifiers.name(identifier), initialized, symbolType, dataType, offset, position);
+        if (symbolType == SymbolType.Constant && builder.constant(variableSymbol)) {
+            return offset;
+        }
+        builder.variable(variableSymbol, initialized);
+        return offset + 1;
+    }
+
+    // 函数定义部分的返回类型、函数名和参数
+    private FunctionBody functionHeader() throws SyntaxException {
         DataType dataType = null;
         FunctionSymbol functionSymbol;
-        String functionName;
-        int constantIndex;
+        int functionName;
         read();
         if (wordSymbol == WordSymbol.Char || wordSymbol == WordSymbol.Int || wordSymbol == WordSymbol.Void) {
-            dataType = tokenToDataType(token);
+            dataType = symbolToDataType(wordSymbol);
         }
         if (dataType == null) {
             if (wordSymbol == WordSymbol.Identifier) {
@@ -208,52 +420,96 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.Identifier) {
             throw new SyntaxException(SyntaxError.ExpectIdentifier);
         }
-        constantIndex = instructionWriter.writeConstants(token);
-        instructionWriter.newFunction();
-        functionSymbol = insertFunctionSymbol(token, SymbolType.Function, dataType, functionOffset, lineOffset, wordOffset);
+        functionName = identifier();
+        functionSymbol = symbolTable.insertFunctionSymbol(functionName, identifiers.name(functionName), SymbolType.Function, dataType, functionOffset, position());
         ++level;
-        nextLevel();
-        functionName = token;
-        int variableOffset = parameter(functionName);
-        functionSymbol.setVariableOffset(variableOffset);
-        instructionWriter.writeFunctions(functionOffset, constantIndex, functionSymbol.getArgsSize());
+        symbolTable.nextLevel();
+        functionSymbol.setVariableOffset(parameter(functionName));
+        return new FunctionBody(functionName, functionSymbol);
+    }
+
+    // 函数体
+    private void functionBody(FunctionBody function) throws SyntaxException {
+        FunctionSymbol functionSymbol = function.symbol;
+        builder.functionBegin(function.identifier, functionSymbol);
         read();
         if (wordSymbol == WordSymbol.LeftBrace) {
+            int variableOffset = functionSymbol.getVariableOffset();
             while ((variableOffset = variableDeclaration(variableOffset)) != -1) {
                 functionSymbol.setVariableOffset(variableOffset);
             }
             statementSequence(functionSymbol);
-            if (functionSymbol.dataType == DataType.Void) {
-                instructionWriter.write(level, Instructions.ret);
-            } else if (functionSymbol.dataType == DataType.Char) {
-                instructionWriter.write(level, Instructions.bipush, 0);
-                instructionWriter.write(level, Instructions.iret);
-            } else {
-                instructionWriter.write(level, Instructions.ipush, 0);
-                instructionWriter.write(level, Instructions.iret);
-            }
+            builder.functionEnd(functionSymbol);
             read();
             if (wordSymbol == WordSymbol.RightBrace) {
                 --level;
-                prevLevel();
+                symbolTable.prevLevel();
             } else {
                 throw new SyntaxException(SyntaxError.ExpectCorrectSeparator);
             }
         } else {
             throw new SyntaxException(SyntaxError.MissingFunctionBody);
         }
+    }
+
+    // 按花括号配对跳过函数体，退出参数所在的一层并保存下来
+    private void skipFunctionBody(FunctionBody function) throws SyntaxException {
         read();
-        if (wordSymbol == WordSymbol.EOF) {
-            unread();
+        if (wordSymbol != WordSymbol.LeftBrace) {
+            throw new SyntaxException(SyntaxError.MissingFunctionBody);
+        }
+        function.start = cursor;
+        int depth = 1;
+        while (depth > 0) {
+            read();
+            if (wordSymbol == WordSymbol.LeftBrace) {
+                ++depth;
+            } else if (wordSymbol == WordSymbol.RightBrace) {
+                --depth;
+            } else if (wordSymbol == WordSymbol.EOF) {
+                throw new SyntaxException(SyntaxError.ExpectCorrectSeparator);
+            }
+        }
+        function.end = cursor;
+        --level;
+        function.parameters = symbolTable.levelSymbols();
+        symbolTable.prevLevel();
+    }
+
+    // 只找在当前函数之前定义的函数，并行分析时符号表中已经有后面的函数
+    private FunctionSymbol findFunctionSymbol(int identifier) {
+        FunctionSymbol function = symbolTable.findFunctionSymbol(identifier);
+        return function != null && visible(function) ? function : null;
+    }
+
+    private boolean visible(FunctionSymbol function) {
+        return function.offset <= functionOffset;
+    }
+
+    // 并行分析函数体时，没有初值的全局变量记下来，之后再检查前面的函数是否赋过值
+    private boolean isInitialized(VariableSymbol variable) {
+        if (variable.isInitialized()) {
+            return true;
+        }
+        if (assignedGlobals == null || variable.level != 0) {
             return false;
+        }
+        if (!assignedGlobals.contains(variable)) {
+            requiredGlobals.add(variable);
+        }
+        return true;
+    }
+
+    private void setInitialized(VariableSymbol variable) {
+        if (assignedGlobals != null && variable.level == 0) {
+            assignedGlobals.add(variable);
         } else {
-            unread();
-            return true;
+            variable.setInitialized();
         }
     }
 
     // 参数
-    private int parameter(String functionName) throws SyntaxException {
+    private int parameter(int functionName) throws SyntaxException {
         DataType dataType;
         SymbolType symbolType;
         int offset = 0;
@@ -283,8 +539,8 @@ public class SyntaxAnalyzer {
                 if (wordSymbol != WordSymbol.Identifier) {
                     throw new SyntaxException(SyntaxError.ExpectIdentifier);
                 }
-                insertVariableSymbol(level, token, true, symbolType, dataType, offset, lineOffset, wordOffset);
-                updateFunctionSymbol(functionName, token, symbolType, dataType, offset, lineOffset, wordOffset);
+                symbolTable.insertVariableSymbol(level, identifier(), identifiers.name(identifier()), true, symbolType, dataType, offset, position());
+                symbolTable.updateFunctionSymbol(functionName, identifier(), identifiers.name(identifier()), symbolType, dataType, offset, position());
                 ++offset;
                 read();
                 if (wordSymbol == WordSymbol.RightParenthesis) {
@@ -315,7 +571,8 @@ public class SyntaxAnalyzer {
             return false;
         } else if (wordSymbol == WordSymbol.LeftBrace) {
             ++level;
-            nextLevel();
+            symbolTable.nextLevel();
+            builder.blockBegin();
             int variableOffset = functionSymbol.getVariableOffset();
             int oldOffset = variableOffset;
             while ((variableOffset = variableDeclaration(variableOffset)) != -1) {
@@ -325,27 +582,23 @@ public class SyntaxAnalyzer {
             read();
             if (wordSymbol == WordSymbol.RightBrace) {
                 --level;
-                prevLevel();
-            }
-            if (functionSymbol.getVariableOffset() != oldOffset) {
-                instructionWriter.write(level, Instructions.popn, functionSymbol.getVariableOffset() - oldOffset);
-                functionSymbol.setVariableOffset(oldOffset);
+                symbolTable.prevLevel();
             }
+            builder.blockEnd(functionSymbol.getVariableOffset() - oldOffset);
+            functionSymbol.setVariableOffset(oldOffset);
             return true;
         } else if (wordSymbol == WordSymbol.Identifier) {
             read();
             if (wordSymbol == WordSymbol.LeftParenthesis) {
                 unread();
-                FunctionSymbol function = findFunctionSymbol(token);
+                FunctionSymbol function = findFunctionSymbol(identifier());
                 unread();
                 callFunction();
                 // 如果调用者不需要返回值，执行 pop 系列指令清除调用者栈帧得到的返回值
                 if (function == null) {
                     throw new SyntaxException(SyntaxError.SymbolNotFound);
                 }
-                if (function.dataType != DataType.Void) {
-                    instructionWriter.write(level, Instructions.pop);
-                }
+                builder.callStatement(function);
             } else {
                 unread();
                 unread();
@@ -387,46 +640,33 @@ public class SyntaxAnalyzer {
     }
 
     // 条件
-    private Instructions condition() throws SyntaxException {
-        Instructions instructions;
+    private void condition() throws SyntaxException {
+        WordSymbol relation;
         expression();
         read();
         if (wordSymbol == WordSymbol.RightParenthesis) {
             unread();
-            return Instructions.je;
+            builder.condition(null);
         } else {
             switch (wordSymbol) {
                 case Less:
-                    instructions = Instructions.jge;
-                    break;
                 case LessOrEqual:
-                    instructions = Instructions.jg;
-                    break;
                 case Greater:
-                    instructions = Instructions.jle;
-                    break;
                 case GreaterOrEqual:
-                    instructions = Instructions.jl;
-                    break;
                 case NotEqual:
-                    instructions = Instructions.je;
-                    break;
                 case Equal:
-                    instructions = Instructions.jne;
+                    relation = wordSymbol;
                     break;
                 default:
                     throw new SyntaxException(SyntaxError.InvalidCondition);
             }
             expression();
-            instructionWriter.write(level, Instructions.icmp);
-            return instructions;
+            builder.condition(relation);
         }
     }
 
     // 条件语句
     private void ifStatement(FunctionSymbol functionSymbol) throws SyntaxException {
-        int index;
-        Instructions conditionInstruction;
         read();
         if (wordSymbol != WordSymbol.If) {
             throw new SyntaxException(SyntaxError.InvalidIfStatement);
@@ -435,8 +675,8 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.LeftParenthesis) {
             throw new SyntaxException(SyntaxError.MissingCondition);
         }
-        conditionInstruction = condition();
-        index = instructionWriter.getSize();
+        condition();
+        builder.ifBegin();
         read();
         if (wordSymbol != WordSymbol.RightParenthesis) {
             throw new SyntaxException(SyntaxError.ExpectRightParenthesis);
@@ -444,21 +684,17 @@ public class SyntaxAnalyzer {
         statement(functionSymbol);
         read();
         if (wordSymbol == WordSymbol.Else) {
-            instructionWriter.insert(index + 1, conditionInstruction, instructionWriter.getSize() + 3);
-            index = instructionWriter.getSize();
+            builder.elseBegin();
             statement(functionSymbol);
-            instructionWriter.insert(index + 1, Instructions.jmp, instructionWriter.getSize() + 2);
+            builder.ifEnd();
         } else {
-            instructionWriter.insert(index + 1, conditionInstruction, instructionWriter.getSize() + 2);
+            builder.ifEnd();
             unread();
         }
     }
 
     // 循环语句
     private void whileStatement(FunctionSymbol functionSymbol) throws SyntaxException {
-        int loopIndex;
-        int conditionIndex;
-        Instructions conditionInstruction;
         read();
         if (wordSymbol != WordSymbol.While) {
             throw new SyntaxException(SyntaxError.InvalidWhileStatement);
@@ -467,16 +703,15 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.LeftParenthesis) {
             throw new SyntaxException(SyntaxError.MissingCondition);
         }
-        loopIndex = instructionWriter.getSize();
-        conditionInstruction = condition();
-        conditionIndex = instructionWriter.getSize();
+        builder.whileBegin();
+        condition();
+        builder.whileBody();
         read();
         if (wordSymbol != WordSymbol.RightParenthesis) {
             throw new SyntaxException(SyntaxError.ExpectRightParenthesis);
         }
         statement(functionSymbol);
-        instructionWriter.insert(conditionIndex + 1, conditionInstruction, instructionWriter.getSize() + 3);
-        instructionWriter.write(level, Instructions.jmp, loopIndex + 1);
+        builder.whileEnd();
     }
 
     // 返回语句
@@ -496,12 +731,9 @@ public class SyntaxAnalyzer {
             if (wordSymbol != WordSymbol.Semicolon) {
                 throw new SyntaxException(SyntaxError.MissingSemicolon);
             }
-            if (functionSymbol.dataType == DataType.Char) {
-                instructionWriter.write(level, Instructions.i2c);
-            }
-            instructionWriter.write(level, Instructions.iret);
+            builder.returnValue(functionSymbol);
         } else if (functionSymbol.dataType == DataType.Void) {
-            instructionWriter.write(level, Instructions.ret);
+            builder.returnVoid();
         } else {
             throw new SyntaxException(SyntaxError.NoReturnValueForIntFunction);
         }
@@ -522,25 +754,21 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.Identifier) {
             throw new SyntaxException(SyntaxError.ExpectIdentifier);
         }
-        variableSymbol = findVariableSymbol(token);
+        variableSymbol = symbolTable.findVariableSymbol(identifier());
         if (variableSymbol == null) {
             throw new SyntaxException(SyntaxError.SymbolNotFound);
+        } else if (variableSymbol.symbolType == SymbolType.Constant) {
+            throw new SyntaxException(SyntaxError.AssignToConstant);
         }
         read();
         if (wordSymbol != WordSymbol.RightParenthesis) {
             throw new SyntaxException(SyntaxError.ExpectRightParenthesis);
         }
-        instructionWriter.write(level, Instructions.loada, variableSymbol.level >= 1 ? 0 : 1, variableSymbol.offset);
-        if (variableSymbol.dataType == DataType.Char) {
-            instructionWriter.write(level, Instructions.cscan);
-        } else {
-            instructionWriter.write(level, Instructions.iscan);
-        }
         if (level < variableSymbol.level) {
             throw new SyntaxException(SyntaxError.UnknownError);
         }
-        instructionWriter.write(level, Instructions.istore);
-        variableSymbol.setInitialized();
+        builder.scan(variableSymbol);
+        setInitialized(variableSymbol);
         read();
         if (wordSymbol != WordSymbol.Semicolon) {
             throw new SyntaxException(SyntaxError.MissingSemicolon);
@@ -549,7 +777,6 @@ public class SyntaxAnalyzer {
 
     // 写语句
     private void printStatement() throws SyntaxException {
-        int stringLiteralIndex;
         read();
         if (wordSymbol != WordSymbol.Print) {
             throw new SyntaxException(SyntaxError.InvalidPrint);
@@ -558,51 +785,37 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.LeftParenthesis) {
             throw new SyntaxException(SyntaxError.ExpectLeftParenthesis);
         }
+        builder.printBegin();
         read();
         if (wordSymbol == WordSymbol.RightParenthesis) {
             read();
             if (wordSymbol != WordSymbol.Semicolon) {
                 throw new SyntaxException(SyntaxError.MissingSemicolon);
             }
-            instructionWriter.write(level, Instructions.printl);
+            builder.printEnd();
             return;
         }
         if (wordSymbol == WordSymbol.StringLiteral) {
-            stringLiteralIndex = instructionWriter.writeConstants(token);
-            instructionWriter.write(level, Instructions.loadc, stringLiteralIndex);
-            instructionWriter.write(level, Instructions.sprint);
+            builder.printString(token());
         } else {
             unread();
-            boolean convertToChar = expression();
-            if (convertToChar) {
-                instructionWriter.write(level, Instructions.cprint);
-            } else {
-                instructionWriter.write(level, Instructions.iprint);
-            }
+            builder.printValue(expression());
         }
         while (true) {
             read();
             if (wordSymbol == WordSymbol.RightParenthesis) {
-                instructionWriter.write(level, Instructions.printl);
+                builder.printEnd();
                 break;
             } else if (wordSymbol != WordSymbol.Comma) {
                 throw new SyntaxException(SyntaxError.ExpectCorrectSeparator);
             }
-            instructionWriter.write(level, Instructions.bipush, 32);
-            instructionWriter.write(level, Instructions.cprint);
+            builder.printSeparator();
             read();
             if (wordSymbol == WordSymbol.StringLiteral) {
-                stringLiteralIndex = instructionWriter.writeConstants(token);
-                instructionWriter.write(level, Instructions.loadc, stringLiteralIndex);
-                instructionWriter.write(level, Instructions.sprint);
+                builder.printString(token());
             } else {
                 unread();
-                boolean convertToChar = expression();
-                if (convertToChar) {
-                    instructionWriter.write(level, Instructions.cprint);
-                } else {
-                    instructionWriter.write(level, Instructions.iprint);
-                }
+                builder.printValue(expression());
             }
         }
         read();
@@ -618,7 +831,7 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.Identifier) {
             throw new SyntaxException(SyntaxError.ExpectIdentifier);
         }
-        variableSymbol = findVariableSymbol(token);
+        variableSymbol = symbolTable.findVariableSymbol(identifier());
         if (variableSymbol == null) {
             throw new SyntaxException(SyntaxError.SymbolNotFound);
         } else if (variableSymbol.symbolType == SymbolType.Constant) {
@@ -628,13 +841,13 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.Assign) {
             throw new SyntaxException(SyntaxError.InvalidAssignment);
         }
-        instructionWriter.write(level, Instructions.loada, variableSymbol.level >= 1 ? 0 : 1, variableSymbol.offset);
+        builder.assignBegin(variableSymbol);
         expression();
         if (level < variableSymbol.level) {
             throw new SyntaxException(SyntaxError.UnknownError);
         }
-        variableSymbol.setInitialized();
-        instructionWriter.write(level, Instructions.istore);
+        setInitialized(variableSymbol);
+        builder.assignEnd(variableSymbol);
     }
 
     // 表达式
@@ -645,11 +858,11 @@ public class SyntaxAnalyzer {
             if (wordSymbol == WordSymbol.Plus) {
                 convertToChar = false;
                 multiplicativeExpression();
-                instructionWriter.write(level, Instructions.iadd);
+                builder.binary(WordSymbol.Plus);
             } else if (wordSymbol == WordSymbol.Minus) {
                 convertToChar = false;
                 multiplicativeExpression();
-                instructionWriter.write(level, Instructions.isub);
+                builder.binary(WordSymbol.Minus);
             } else {
                 unread();
                 break;
@@ -665,11 +878,11 @@ public class SyntaxAnalyzer {
             if (wordSymbol == WordSymbol.Multi) {
                 convertToChar = false;
                 castExpression();
-                instructionWriter.write(level, Instructions.imul);
+                builder.binary(WordSymbol.Multi);
             } else if (wordSymbol == WordSymbol.Div) {
                 convertToChar = false;
                 castExpression();
-                instructionWriter.write(level, Instructions.idiv);
+                builder.binary(WordSymbol.Div);
             } else {
                 unread();
                 break;
@@ -712,7 +925,7 @@ public class SyntaxAnalyzer {
             primaryExpression();
         } else if (wordSymbol == WordSymbol.Minus) {
             primaryExpression();
-            instructionWriter.write(level, Instructions.ineg);
+            builder.negate();
         } else {
             unread();
             if (primaryExpression() && !convertToInt) {
@@ -720,7 +933,7 @@ public class SyntaxAnalyzer {
             }
         }
         if (convertToChar) {
-            instructionWriter.write(level, Instructions.i2c);
+            builder.toChar();
         }
         return convertToChar;
     }
@@ -736,24 +949,25 @@ public class SyntaxAnalyzer {
                 throw new SyntaxException(SyntaxError.ExpectRightParenthesis);
             }
         } else if (wordSymbol == WordSymbol.UnsignedInt) {
-            instructionWriter.write(level, Instructions.ipush, token);
+            builder.intLiteral(buf.value(cursor));
         } else if (wordSymbol == WordSymbol.CharLiteral) {
-            instructionWriter.write(level, Instructions.bipush, token.charAt(0));
+            builder.charLiteral(buf.value(cursor));
             return true;
         } else if (wordSymbol == WordSymbol.Identifier) {
-            variableSymbol = findVariableSymbol(token);
-            functionSymbol = findFunctionSymbol(token);
-            if (variableSymbol != null) {
-                if (!variableSymbol.isInitialized()) {
+            // 变量遮住同名的函数，查一次就能区分
+            Symbol symbol = symbolTable.find(identifier());
+            if (symbol instanceof VariableSymbol) {
+                variableSymbol = (VariableSymbol) symbol;
+                if (!isInitialized(variableSymbol)) {
                     throw new SyntaxException(SyntaxError.UninitializedVariable);
                 }
                 if (level < variableSymbol.level) {
                     throw new SyntaxException(SyntaxError.UnknownError);
                 }
-                instructionWriter.write(level, Instructions.loada, variableSymbol.level >= 1 ? 0 : 1, variableSymbol.offset);
-                instructionWriter.write(level, Instructions.iload);
+                builder.load(variableSymbol);
                 return variableSymbol.dataType == DataType.Char;
-            } else if (functionSymbol != null) {
+            } else if (symbol instanceof FunctionSymbol && visible((FunctionSymbol) symbol)) {
+                functionSymbol = (FunctionSymbol) symbol;
                 if (functionSymbol.dataType == DataType.Void) {
                     throw new SyntaxException(SyntaxError.InvalidCast);
                 }
@@ -777,7 +991,7 @@ public class SyntaxAnalyzer {
         if (wordSymbol != WordSymbol.Identifier) {
             throw new SyntaxException(SyntaxError.ExpectIdentifier);
         }
-        functionSymbol = findFunctionSymbol(token);
+        functionSymbol = findFunctionSymbol(identifier());
         if (functionSymbol == null) {
             throw new SyntaxException(SyntaxError.SymbolNotFound);
         }
@@ -792,7 +1006,7 @@ public class SyntaxAnalyzer {
                 expression();
                 if (params < functionSymbol.getArgsSize()) {
                     if (functionSymbol.getArgDataTypeByIndex(params) == DataType.Char) {
-                        instructionWriter.write(level, Instructions.i2c);
+                        builder.toChar();
                     }
                 } else {
                     throw new SyntaxException(SyntaxError.InvalidCall);
@@ -809,6 +1023,6 @@ public class SyntaxAnalyzer {
         if (params != functionSymbol.getArgsSize()) {
             throw new SyntaxException(SyntaxError.InconsistentNumberOfParameters);
         }
-        instructionWriter.write(level, Instructions.call, functionSymbol.offset);
+        builder.call(functionSymbol, params);
     }
 }
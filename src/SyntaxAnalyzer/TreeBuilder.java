@@ -0,0 +1,262 @@
+package SyntaxAnalyzer;
+
+import IntermediateCode.IrProgram;
+import IntermediateCode.Lowering;
+import SymbolTable.DataType;
+import SymbolTable.FunctionSymbol;
+import SymbolTable.VariableSymbol;
+import SyntaxTree.Folding;
+import SyntaxTree.Node;
+import SyntaxTree.NodeType;
+import WordAnalyzer.WordSymbol;
+
+import java.util.ArrayList;
+
+// 建立语法树，表达式按后缀顺序通知，用栈拼成子树；语句加到当前正在分析的语句序列中
+// 每个函数和全局变量说明分析完就翻译为中间代码，整个程序的语法树不会同时存在
+// 操作数都是常量的表达式在建立结点时就折叠为一个字面量
+class TreeBuilder implements CodeBuilder {
+    private final IrProgram program = new IrProgram();
+    private final Lowering lowering = new Lowering();
+    private final ArrayList<Node> expressions = new ArrayList<>();
+    private final ArrayList<ArrayList<Node>> sequences = new ArrayList<>(); // 正在分析的语句序列，最外层不保存
+    private final ArrayList<Node> conditions = new ArrayList<>(); // 正在分析的 if、while 的条件
+    private int identifier; // 正在分析的函数名的标识符编号
+
+    TreeBuilder() {
+        sequences.add(new ArrayList<>());
+    }
+
+    // 分析完成后整个程序的中间代码
+    IrProgram getProgram() {
+        return program;
+    }
+
+    private static Node[] toArray(ArrayList<Node> nodes) {
+        return nodes.toArray(new Node[0]);
+    }
+
+    private void push(Node node) {
+        expressions.add(node);
+    }
+
+    private Node pop() {
+        return expressions.remove(expressions.size() - 1);
+    }
+
+    private void add(Node statement) {
+        if (sequences.size() > 1) {
+            sequences.get(sequences.size() - 1).add(statement);
+        } else if (statement.type == NodeType.Function) {
+            program.functions.add(lowering.function(statement));
+        } else {
+            lowering.global(statement, program.start);
+        }
+    }
+
+    private void beginSequence() {
+        sequences.add(new ArrayList<>());
+    }
+
+    private Node endSequence(int variables) {
+        return new Node(NodeType.Block, variables, toArray(sequences.remove(sequences.size() - 1)));
+    }
+
+    @Override
+    public void variable(VariableSymbol variable, boolean initialized) {
+        if (initialized) {
+            add(new Node(NodeType.Variable, variable, pop()));
+        } else {
+            add(new Node(NodeType.Variable, variable));
+        }
+    }
+
+    // 初值折叠为字面量时常量不再需要存储单元，char 常量只接受 0 到 127
+    @Override
+    public boolean constant(VariableSymbol constant) {
+        Node value = expressions.get(expressions.size() - 1);
+        if (!Folding.isConstant(value) || (constant.dataType == DataType.Char && !Folding.isChar(value.value))) {
+            return false;
+        }
+        pop();
+        constant.setValue(value.value);
+        return true;
+    }
+
+    @Override
+    public void functionBegin(int identifier, FunctionSymbol function) {
+        this.identifier = identifier;
+        beginSequence();
+    }
+
+    @Override
+    public void functionEnd(FunctionSymbol function) {
+        Node body = endSequence(0);
+        add(new Node(NodeType.Function, null, identifier, function, null, new Node[]{body}));
+    }
+
+    @Override
+    public void blockBegin() {
+        beginSequence();
+    }
+
+    @Override
+    public void blockEnd(int variables) {
+        add(endSequence(variables));
+    }
+
+    @Override
+    public void callStatement(FunctionSymbol function) {
+        add(new Node(NodeType.CallStatement, pop()));
+    }
+
+    @Override
+    public void assignBegin(VariableSymbol variable) {
+    }
+
+    @Override
+    public void assignEnd(VariableSymbol variable) {
+        add(new Node(NodeType.Assign, variable, pop()));
+    }
+
+    @Override
+    public void condition(WordSymbol relation) {
+        if (relation == null) {
+            push(new Node(NodeType.Condition, (WordSymbol) null, pop()));
+        } else {
+            Node right = pop();
+            push(new Node(NodeType.Condition, relation, pop(), right));
+        }
+    }
+
+    @Override
+    public void ifBegin() {
+        conditions.add(pop());
+        beginSequence();
+    }
+
+    // then 分支结束，暂时放在条件栈上
+    @Override
+    public void elseBegin() {
+        conditions.add(endSequence(0));
+        beginSequence();
+    }
+
+    @Override
+    public void ifEnd() {
+        Node last = endSequence(0);
+        Node then = conditions.remove(conditions.size() - 1);
+        if (then.type == NodeType.Condition) {
+            add(new Node(NodeType.If, then, last));
+        } else {
+            Node condition = conditions.remove(conditions.size() - 1);
+            add(new Node(NodeType.If, condition, then, last));
+        }
+    }
+
+    @Override
+    public void whileBegin() {
+    }
+
+    @Override
+    public void whileBody() {
+        conditions.add(pop());
+        beginSequence();
+    }
+
+    @Override
+    public void whileEnd() {
+        Node body = endSequence(0);
+        add(new Node(NodeType.While, conditions.remove(conditions.size() - 1), body));
+    }
+
+    @Override
+    public void returnValue(FunctionSymbol function) {
+        add(new Node(NodeType.Return, function, pop()));
+    }
+
+    @Override
+    public void returnVoid() {
+        add(new Node(NodeType.Return));
+    }
+
+    @Override
+    public void scan(VariableSymbol variable) {
+        add(new Node(NodeType.Scan, variable));
+    }
+
+    // 输出项也用一个语句序列收集
+    @Override
+    public void printBegin() {
+        beginSequence();
+    }
+
+    @Override
+    public void printString(String string) {
+        add(Node.string(string));
+    }
+
+    @Override
+    public void printValue(boolean isChar) {
+        add(new Node(NodeType.PrintValue, isChar ? 1 : 0, pop()));
+    }
+
+    @Override
+    public void printSeparator() {
+    }
+
+    @Override
+    public void printEnd() {
+        add(new Node(NodeType.Print, toArray(sequences.remove(sequences.size() - 1))));
+    }
+
+    @Override
+    public void intLiteral(int value) {
+        push(new Node(NodeType.IntLiteral, value));
+    }
+
+    @Override
+    public void charLiteral(int value) {
+        push(new Node(NodeType.CharLiteral, value));
+    }
+
+    @Override
+    public void load(VariableSymbol variable) {
+        if (variable.isInlined()) {
+            push(new Node(variable.dataType == DataType.Char ? NodeType.CharLiteral : NodeType.IntLiteral, variable.getValue()));
+        } else {
+            push(new Node(NodeType.Load, variable));
+        }
+    }
+
+    @Override
+    public void call(FunctionSymbol function, int arguments) {
+        Node[] children = new Node[arguments];
+        for (int i = arguments - 1; i >= 0; --i) {
+            children[i] = pop();
+        }
+        push(new Node(NodeType.Call, function, children));
+    }
+
+    @Override
+    public void binary(WordSymbol operator) {
+        Node right = pop();
+        Node left = pop();
+        Node folded = Folding.binary(operator, left, right);
+        push(folded != null ? folded : new Node(NodeType.Binary, operator, left, right));
+    }
+
+    @Override
+    public void negate() {
+        Node operand = pop();
+        Node folded = Folding.negate(operand);
+        push(folded != null ? folded : new Node(NodeType.Negate, operand));
+    }
+
+    @Override
+    public void toChar() {
+        Node operand = pop();
+        Node folded = Folding.toChar(operand);
+        push(folded != null ? folded : new Node(NodeType.ToChar, operand));
+    }
+}
@@ -1,21 +1,54 @@
 package SyntaxAnalyzer;
 
+import InstructionWriter.Instructions;
 import SymbolTable.DataType;
+import WordAnalyzer.WordSymbol;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 public class Utils {
-    private static Map<String, DataType> tokenDataTypeMap =
-            new HashMap<String, DataType>() {
+    private static Map<WordSymbol, DataType> symbolDataTypeMap =
+            new EnumMap<WordSymbol, DataType>(WordSymbol.class) {
                 {
-                    put("char", DataType.Char);
-                    put("int", DataType.Int);
-                    put("void", DataType.Void);
+                    put(WordSymbol.Char, DataType.Char);
+                    put(WordSymbol.Int, DataType.Int);
+                    put(WordSymbol.Void, DataType.Void);
                 }
             };
 
-    static DataType tokenToDataType(String token) {
-        return tokenDataTypeMap.get(token);
+    static DataType symbolToDataType(WordSymbol symbol) {
+        return symbolDataTypeMap.get(symbol);
+    }
+
+    // 条件不成立时跳转用的指令，icmp 之后比较结果在栈顶
+    static Instructions falseJump(WordSymbol relation) {
+        switch (relation) {
+            case Less:
+                return Instructions.jge;
+            case LessOrEqual:
+                return Instructions.jg;
+            case Greater:
+                return Instructions.jle;
+            case GreaterOrEqual:
+                return Instructions.jl;
+            case NotEqual:
+                return Instructions.je;
+            default:
+                return Instructions.jne;
+        }
+    }
+
+    static Instructions arithmetic(WordSymbol operator) {
+        switch (operator) {
+            case Plus:
+                return Instructions.iadd;
+            case Minus:
+                return Instructions.isub;
+            case Multi:
+                return Instructions.imul;
+            default:
+                return Instructions.idiv;
+        }
     }
 }
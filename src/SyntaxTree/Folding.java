@@ -0,0 +1,46 @@
+package SyntaxTree;
+
+import WordAnalyzer.WordSymbol;
+
+// 编译时计算操作数都是常量的表达式，只在结果与虚拟机执行时一定相同时折叠，否则返回 null
+// int 按 32 位补码回绕，除法向 0 取整
+public class Folding {
+    public static boolean isConstant(Node node) {
+        return node.type == NodeType.IntLiteral || node.type == NodeType.CharLiteral;
+    }
+
+    // 除数为 0 和 INT_MIN / -1 留到运行时处理
+    public static Node binary(WordSymbol operator, Node left, Node right) {
+        if (!isConstant(left) || !isConstant(right)) {
+            return null;
+        }
+        int x = left.value;
+        int y = right.value;
+        switch (operator) {
+            case Plus:
+                return new Node(NodeType.IntLiteral, x + y);
+            case Minus:
+                return new Node(NodeType.IntLiteral, x - y);
+            case Multi:
+                return new Node(NodeType.IntLiteral, x * y);
+            default:
+                if (y == 0 || (x == Integer.MIN_VALUE && y == -1)) {
+                    return null;
+                }
+                return new Node(NodeType.IntLiteral, x / y);
+        }
+    }
+
+    public static Node negate(Node operand) {
+        return isConstant(operand) ? new Node(NodeType.IntLiteral, -operand.value) : null;
+    }
+
+    // i2c 对超出 ASCII 的值怎样截断由虚拟机决定，只折叠 0 到 127
+    public static Node toChar(Node operand) {
+        return isConstant(operand) && isChar(operand.value) ? new Node(NodeType.CharLiteral, operand.value) : null;
+    }
+
+    public static boolean isChar(int value) {
+        return value >= 0 && value <= 127;
+    }
+}
@@ -0,0 +1,46 @@
+package SyntaxTree;
+
+import SymbolTable.Symbol;
+import WordAnalyzer.WordSymbol;
+
+// 语法树的结点，各种结点共用这个类，用到的字段见 NodeType
+// 名字都已经解析为符号表中的符号
+public class Node {
+    private static final Node[] LEAF = new Node[0];
+
+    public final NodeType type;
+    public final WordSymbol operator;
+    public final int value;
+    public final Symbol symbol;
+    public final String text;
+    public final Node[] children;
+
+    public Node(NodeType type, WordSymbol operator, int value, Symbol symbol, String text, Node[] children) {
+        this.type = type;
+        this.operator = operator;
+        this.value = value;
+        this.symbol = symbol;
+        this.text = text;
+        this.children = children;
+    }
+
+    public Node(NodeType type, Node... children) {
+        this(type, null, 0, null, null, children);
+    }
+
+    public Node(NodeType type, int value, Node... children) {
+        this(type, null, value, null, null, children);
+    }
+
+    public Node(NodeType type, Symbol symbol, Node... children) {
+        this(type, null, 0, symbol, null, children);
+    }
+
+    public Node(NodeType type, WordSymbol operator, Node... children) {
+        this(type, operator, 0, null, null, children);
+    }
+
+    public static Node string(String text) {
+        return new Node(NodeType.PrintString, null, 0, null, text, LEAF);
+    }
+}
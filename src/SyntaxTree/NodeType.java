@@ -0,0 +1,25 @@
+package SyntaxTree;
+
+// 语法树结点的种类，注释中是子结点的排列
+public enum NodeType {
+    Function, // 函数体；symbol 为函数，value 为函数名的标识符编号
+    Block, // 语句；value 为块结束时要弹出的变量个数
+    Variable, // 初值表达式或没有子结点；symbol 为变量
+    CallStatement, // 调用表达式，返回值被丢弃
+    Assign, // 右边的表达式；symbol 为变量
+    If, // 条件、then 分支，可能还有 else 分支，分支都是 Block
+    While, // 条件、循环体
+    Return, // 返回值表达式或没有子结点；symbol 为所在的函数
+    Scan, // symbol 为变量
+    Print, // 各个输出项，项之间输出空格
+    PrintString, // text 为字符串字面量
+    PrintValue, // 表达式；value 为 1 时按字符输出
+    Condition, // 一个或两个表达式；operator 为比较运算符，一个表达式时为 null
+    IntLiteral, // value 为值
+    CharLiteral, // value 为值
+    Load, // symbol 为变量
+    Call, // 实参；symbol 为函数
+    Binary, // 左右两个操作数；operator 为加减乘除
+    Negate, // 操作数
+    ToChar // 操作数
+}
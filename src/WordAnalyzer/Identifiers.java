@@ -0,0 +1,112 @@
+package WordAnalyzer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 一次编译中出现过的标识符，每个标识符对应一个从 0 开始的连续编号
+// 后续阶段用编号比较和查找标识符，不再对字符串重复求哈希
+public class Identifiers {
+    private int[] table = new int[1024]; // 开放寻址表，存放编号 + 1，0 表示空位
+    private int[] hashes = new int[256];
+    private volatile String[] names = new String[256]; // 流式分析时语法分析线程会并发读取
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // hash 须与 String.hashCode 的算法一致
+    public int intern(ByteBuffer buffer, int start, int length, int hash) {
+        int mask = table.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) {
+                char[] chars = new char[length];
+                for (int j = 0; j < length; ++j) {
+                    chars[j] = (char) (buffer.get(start + j) & 0xff);
+                }
+                return add(i, new String(chars), hash);
+            }
+            if (hashes[id] == hash && equals(names[id], buffer, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = table.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) {
+                return add(i, name, hash);
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    // 没有出现过的标识符返回 -1
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = table.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(int slot, String name, int hash) {
+        int id = size;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            names = Arrays.copyOf(names, id * 2);
+        }
+        hashes[id] = hash;
+        names[id] = name;
+        table[slot] = id + 1;
+        ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; ++id) {
+            int i = mix(hashes[id]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String name, ByteBuffer buffer, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (name.charAt(i) != (buffer.get(start + i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+package WordAnalyzer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+// 由 TokenSpec 生成的表，getsym 只查表不再逐个比较字符
+class LexerTable {
+    static final int ACCEPT = -1; // 当前字符不属于单词，接受当前状态
+    static final int ERROR = -2; // ERROR - i 表示第 i 种错误
+    static final int HASH = 1; // accumulates 中的值，0 表示不累加，HASH 表示计入标识符的哈希，其余为数值的进制
+    static final int EOF = 256; // 源码结束在行中的列
+    static final int COLUMNS = 257; // 每行按字节直接查，不再经过字符类
+
+    final int[] transitions; // 下标为 状态所在行的起点 + 字节，转移到的状态也存为行的起点
+    final WordSymbol[] accepts; // 同样按行的起点存放
+    final byte[] accumulates; // 同样按行的起点存放
+    final byte[] digits = new byte[256]; // 十六进制数字的值
+    final WordSymbol[] singles = new WordSymbol[128]; // 只由这一个字符组成、后面接什么都结束的单词，如 ( 和 ;
+    final int start;
+    final TokenSpec.Error[] errors;
+    // 关键字的哈希表，哈希与 String.hashCode 相同，空位放长度为 0 的数组
+    final byte[][] keywords;
+    final int[] keywordHashes;
+    final WordSymbol[] keywordSymbols;
+
+    // transitions 按 TokenSpec 的字符类存放，这里展开成按字节的行
+    LexerTable(int[] classes, int classCount, int[] transitions, WordSymbol[] accepts, int[] accumulates, int start,
+               TokenSpec.Error[] errors, Map<String, WordSymbol> keywords) {
+        int states = accepts.length;
+        this.transitions = new int[states * COLUMNS];
+        this.accepts = new WordSymbol[states * COLUMNS];
+        this.accumulates = new byte[states * COLUMNS];
+        for (int state = 0; state < states; ++state) {
+            for (int c = 0; c <= EOF; ++c) {
+                int next = transitions[state * classCount + classes[c == EOF ? TokenSpec.EOF : Math.min(c, TokenSpec.HIGH)]];
+                this.transitions[state * COLUMNS + c] = next >= 0 ? next * COLUMNS : next;
+            }
+            this.accepts[state * COLUMNS] = accepts[state];
+            this.accumulates[state * COLUMNS] = (byte) accumulates[state];
+        }
+        for (int c = 0; c < 256; ++c) {
+            if (c >= '0' && c <= '9') {
+                digits[c] = (byte) (c - '0');
+            } else if (c >= 'a' && c <= 'f') {
+                digits[c] = (byte) (c - 'a' + 10);
+            } else if (c >= 'A' && c <= 'F') {
+                digits[c] = (byte) (c - 'A' + 10);
+            }
+        }
+        this.start = start * COLUMNS;
+        for (int c = 0; c < 128; ++c) {
+            int next = this.transitions[this.start + c];
+            if (next >= 0 && this.accepts[next] != null && endsEverywhere(next)) {
+                singles[c] = this.accepts[next];
+            }
+        }
+        this.errors = errors;
+        // 表长翻倍直到各个关键字落在不同的位置，查找时只看一个位置
+        int size = Integer.highestOneBit(Math.max(keywords.size(), 1) * 4 - 1) * 2;
+        while (!distinctSlots(keywords.keySet(), size)) {
+            size *= 2;
+        }
+        this.keywords = new byte[size][];
+        Arrays.fill(this.keywords, new byte[0]);
+        this.keywordHashes = new int[size];
+        this.keywordSymbols = new WordSymbol[size];
+        for (Map.Entry<String, WordSymbol> entry : keywords.entrySet()) {
+            int hash = entry.getKey().hashCode();
+            int i = slot(hash, size);
+            this.keywords[i] = entry.getKey().getBytes(StandardCharsets.US_ASCII);
+            this.keywordHashes[i] = hash;
+            this.keywordSymbols[i] = entry.getValue();
+        }
+    }
+
+    private static boolean distinctSlots(Set<String> keywords, int size) {
+        boolean[] used = new boolean[size];
+        for (String keyword : keywords) {
+            int i = slot(keyword.hashCode(), size);
+            if (used[i]) {
+                return false;
+            }
+            used[i] = true;
+        }
+        return true;
+    }
+
+    private boolean endsEverywhere(int row) {
+        for (int c = 0; c <= EOF; ++c) {
+            if (transitions[row + c] != ACCEPT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 行中字符 c 所在的列，c 为 65535 时表示源码结束
+    static int column(char c) {
+        return c == 65535 ? EOF : c;
+    }
+
+    int slot(int hash) {
+        return slot(hash, keywords.length);
+    }
+
+    private static int slot(int hash, int size) {
+        return (hash ^ (hash >>> 16)) & (size - 1);
+    }
+}
@@ -0,0 +1,183 @@
+package WordAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// 把源文件按行切成若干块并行做词法分析，再按顺序拼接成与单线程结果相同的单词表
+// 块的起点可能落在块注释中，拼接时从前一块实际结束的位置开始，找到两边相同的单词起点后再衔接
+public class ParallelTokenizer {
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final WordAnalyzer wordAnalyzer;
+    private final int chunks;
+    private String errorMessage;
+
+    private static class Chunk {
+        int start;
+        int end;
+        WordAnalyzer wordAnalyzer;
+        TokenBuffer tokens;
+        int next = -1; // 本块之后第一个单词的起点
+        WordException error;
+        String errorMessage;
+    }
+
+    public ParallelTokenizer(WordAnalyzer wordAnalyzer, int chunks) {
+        this.wordAnalyzer = wordAnalyzer;
+        this.chunks = chunks;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public TokenBuffer tokenize(ForkJoinPool pool) throws WordException {
+        ArrayList<Chunk> list = split();
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < list.size(); ++i) {
+            Chunk chunk = list.get(i);
+            boolean last = i == list.size() - 1;
+            tasks.add(pool.submit(() -> lex(chunk, last)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return merge(list);
+    }
+
+    // 块的边界都取在换行符之后
+    private ArrayList<Chunk> split() {
+        ArrayList<Chunk> list = new ArrayList<>();
+        int size = wordAnalyzer.size();
+        int count = Math.max(1, Math.min(chunks, size / MIN_CHUNK_SIZE));
+        int start = 0;
+        for (int i = 1; i <= count; ++i) {
+            int end = size;
+            if (i < count) {
+                end = (int) ((long) size * i / count);
+                while (end < size && wordAnalyzer.getBuffer().get(end - 1) != '\n') {
+                    ++end;
+                }
+            }
+            if (end <= start) {
+                continue;
+            }
+            Chunk chunk = new Chunk();
+            chunk.start = start;
+            chunk.end = end;
+            list.add(chunk);
+            start = end;
+        }
+        if (list.isEmpty()) {
+            Chunk chunk = new Chunk();
+            chunk.start = 0;
+            chunk.end = size;
+            list.add(chunk);
+        }
+        return list;
+    }
+
+    private void lex(Chunk chunk, boolean last) {
+        WordAnalyzer lexer = new WordAnalyzer(wordAnalyzer.getBuffer().duplicate(), chunk.start);
+        chunk.wordAnalyzer = lexer;
+        chunk.tokens = new TokenBuffer(lexer);
+        try {
+            while (true) {
+                WordSymbol symbol = lexer.getsym();
+                if (!last && lexer.getTokenStart() >= chunk.end) {
+                    chunk.next = lexer.getTokenStart();
+                    return;
+                }
+                chunk.tokens.add(symbol, lexer.getTokenStart(), lexer.getTokenLength(), lexer.getValue());
+                if (symbol == WordSymbol.EOF) {
+                    return;
+                }
+            }
+        } catch (WordException e) {
+            chunk.error = e;
+            chunk.errorMessage = lexer.getErrorMessage(e);
+        }
+    }
+
+    private TokenBuffer merge(ArrayList<Chunk> list) throws WordException {
+        TokenBuffer result = new TokenBuffer(wordAnalyzer);
+        Identifiers identifiers = wordAnalyzer.getIdentifiers();
+        int expected = 0;
+        for (int i = 0; i < list.size(); ++i) {
+            Chunk chunk = list.get(i);
+            boolean last = i == list.size() - 1;
+            int from = chunk.tokens.indexOf(expected, 0);
+            if (from < 0) {
+                // 前一块越过了边界或本块从注释中间开始，从 expected 处重新分析直到与本块对齐
+                WordAnalyzer lexer = new WordAnalyzer(wordAnalyzer.getBuffer().duplicate(), expected);
+                int[] ids = newIds(lexer);
+                try {
+                    while (true) {
+                        WordSymbol symbol = lexer.getsym();
+                        int start = lexer.getTokenStart();
+                        if (!last && start >= chunk.end) {
+                            break;
+                        }
+                        from = chunk.tokens.indexOf(start, 0);
+                        if (from >= 0) {
+                            break;
+                        }
+                        ids = add(result, lexer, symbol, start, lexer.getTokenLength(), lexer.getValue(), ids, identifiers);
+                        if (symbol == WordSymbol.EOF) {
+                            return result;
+                        }
+                    }
+                } catch (WordException e) {
+                    errorMessage = lexer.getErrorMessage(e);
+                    throw e;
+                }
+                if (from < 0) {
+                    expected = lexer.getTokenStart();
+                    continue;
+                }
+            }
+            // 先把块内的标识符编号换成全局编号，再整段复制
+            int[] ids = newIds(chunk.wordAnalyzer);
+            TokenBuffer tokens = chunk.tokens;
+            Identifiers local = chunk.wordAnalyzer.getIdentifiers();
+            for (int j = from; j < tokens.size(); ++j) {
+                if (tokens.symbol(j) == WordSymbol.Identifier) {
+                    int id = tokens.value(j);
+                    if (ids[id] == 0) {
+                        ids[id] = identifiers.intern(local.name(id)) + 1;
+                    }
+                    tokens.setValue(j, ids[id] - 1);
+                }
+            }
+            result.addAll(tokens, from, tokens.size(), 0);
+            if (chunk.error != null) {
+                errorMessage = chunk.errorMessage;
+                throw chunk.error;
+            }
+            expected = chunk.next;
+        }
+        return result;
+    }
+
+    // 块内标识符编号到全局编号的映射，按首次出现的顺序登记，与单线程分析得到的编号一致
+    private static int[] newIds(WordAnalyzer lexer) {
+        return new int[Math.max(lexer.getIdentifiers().size(), 16)];
+    }
+
+    private static int[] add(TokenBuffer result, WordAnalyzer lexer, WordSymbol symbol, int offset, int length, int value,
+                             int[] ids, Identifiers identifiers) {
+        if (symbol == WordSymbol.Identifier) {
+            if (value >= ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(value + 1, ids.length * 2));
+            }
+            if (ids[value] == 0) {
+                ids[value] = identifiers.intern(lexer.getIdentifiers().name(value)) + 1;
+            }
+            value = ids[value] - 1;
+        }
+        result.add(symbol, offset, length, value);
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+package WordAnalyzer;
+
+import java.util.Arrays;
+
+// 按列存放的单词表，每个单词只占几个 int，文本在需要时才从源码中取出
+public class TokenBuffer implements TokenSource {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final WordSymbol[] SYMBOLS = WordSymbol.values();
+
+    private WordAnalyzer wordAnalyzer;
+    private int[][] symbols = new int[16][];
+    private int[][] offsets = new int[16][];
+    private int[][] lengths = new int[16][];
+    private int[][] values = new int[16][];
+    private int size = 0;
+
+    public TokenBuffer(WordAnalyzer wordAnalyzer) {
+        this.wordAnalyzer = wordAnalyzer;
+    }
+
+    public void add(WordSymbol symbol, int offset, int length, int value) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int index = size & CHUNK_MASK;
+        if (index == 0) {
+            newChunk(chunk);
+        }
+        symbols[chunk][index] = symbol.ordinal();
+        offsets[chunk][index] = offset;
+        lengths[chunk][index] = length;
+        values[chunk][index] = value;
+        ++size;
+    }
+
+    // 取 prefix 的前 count 个单词，整块的部分直接共用
+    // 单词表只在末尾追加，已写满的块不会再改动，共用是安全的
+    TokenBuffer(WordAnalyzer wordAnalyzer, TokenBuffer prefix, int count) {
+        this.wordAnalyzer = wordAnalyzer;
+        int chunks = count >>> CHUNK_SHIFT;
+        int length = Math.max(16, Integer.highestOneBit(chunks + 1) * 2);
+        symbols = Arrays.copyOf(prefix.symbols, length);
+        offsets = Arrays.copyOf(prefix.offsets, length);
+        lengths = Arrays.copyOf(prefix.lengths, length);
+        values = Arrays.copyOf(prefix.values, length);
+        Arrays.fill(symbols, chunks, length, null);
+        Arrays.fill(offsets, chunks, length, null);
+        Arrays.fill(lengths, chunks, length, null);
+        Arrays.fill(values, chunks, length, null);
+        size = chunks << CHUNK_SHIFT;
+        addAll(prefix, size, count, 0);
+    }
+
+    // 把 other 中下标在 [from, to) 的单词按段整体复制到末尾，偏移加上 delta
+    void addAll(TokenBuffer other, int from, int to, int delta) {
+        while (from < to) {
+            int chunk = size >>> CHUNK_SHIFT;
+            int index = size & CHUNK_MASK;
+            if (index == 0) {
+                newChunk(chunk);
+            }
+            int source = from >>> CHUNK_SHIFT;
+            int sourceIndex = from & CHUNK_MASK;
+            int count = Math.min(Math.min(CHUNK_SIZE - index, CHUNK_SIZE - sourceIndex), to - from);
+            System.arraycopy(other.symbols[source], sourceIndex, symbols[chunk], index, count);
+            System.arraycopy(other.lengths[source], sourceIndex, lengths[chunk], index, count);
+            System.arraycopy(other.values[source], sourceIndex, values[chunk], index, count);
+            if (delta == 0) {
+                System.arraycopy(other.offsets[source], sourceIndex, offsets[chunk], index, count);
+            } else {
+                int[] sourceOffsets = other.offsets[source];
+                int[] targetOffsets = offsets[chunk];
+                for (int i = 0; i < count; ++i) {
+                    targetOffsets[index + i] = sourceOffsets[sourceIndex + i] + delta;
+                }
+            }
+            size += count;
+            from += count;
+        }
+    }
+
+    void setValue(int index, int value) {
+        values[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = value;
+    }
+
+    // 整块追加，已有的块不需要复制
+    private void newChunk(int chunk) {
+        if (chunk == symbols.length) {
+            int length = symbols.length * 2;
+            symbols = Arrays.copyOf(symbols, length);
+            offsets = Arrays.copyOf(offsets, length);
+            lengths = Arrays.copyOf(lengths, length);
+            values = Arrays.copyOf(values, length);
+        }
+        symbols[chunk] = new int[CHUNK_SIZE];
+        offsets[chunk] = new int[CHUNK_SIZE];
+        lengths[chunk] = new int[CHUNK_SIZE];
+        values[chunk] = new int[CHUNK_SIZE];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public WordAnalyzer getWordAnalyzer() {
+        return wordAnalyzer;
+    }
+
+    // 单词按起点递增排列，二分查找起点为 offset 的单词，没有时返回 -1
+    int indexOf(int offset, int low) {
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int start = offset(middle);
+            if (start < offset) {
+                low = middle + 1;
+            } else if (start > offset) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // 最后一个在 offset 之前结束的单词，没有时返回 -1
+    int lastEndingBefore(int offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (offset(middle) + length(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public WordSymbol symbol(int index) {
+        return SYMBOLS[symbols[index >>> CHUNK_SHIFT][index & CHUNK_MASK]];
+    }
+
+    @Override
+    public int offset(int index) {
+        return offsets[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int length(int index) {
+        return lengths[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int value(int index) {
+        return values[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public String text(int index) {
+        return wordAnalyzer.getText(symbol(index), offset(index), length(index));
+    }
+}
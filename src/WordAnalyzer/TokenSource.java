@@ -0,0 +1,15 @@
+package WordAnalyzer;
+
+// 语法分析器按下标读取单词的接口
+public interface TokenSource {
+    WordSymbol symbol(int index);
+
+    int offset(int index);
+
+    int length(int index);
+
+    // 标识符的编号
+    int value(int index);
+
+    String text(int index);
+}
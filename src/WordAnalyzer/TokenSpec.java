@@ -0,0 +1,334 @@
+package WordAnalyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// 单词的声明式描述，build 时生成字符类表和状态转移表
+// 每个状态按添加的顺序匹配字符集，先添加的优先；都不匹配时执行 otherwise，没有 otherwise 的接受状态结束单词
+class TokenSpec {
+    static final int HIGH = 128; // 128 到 255 的字符
+    static final int EOF = 129; // 源码结束
+    static final int CHARS = 130;
+
+    // 出错时单词文本的取法，i 为出错字符的位置
+    enum Text {
+        Slice, // 单词开头到 i 之前
+        Decode, // 字面量中出错的字符或转义序列之前的内容
+        DecodeAndChar, // 同上再加上出错字符
+        DecodeAllAndChar, // 字面量中 i 之前的全部内容再加上出错字符
+        Char, // 出错字符
+        Empty
+    }
+
+    static class Error {
+        final WordError error;
+        final Text text;
+        boolean unread; // 出错字符不算在单词内
+        boolean unknown; // 出错时把 symbol 置为 Unknown
+
+        Error(WordError error, Text text) {
+            this.error = error;
+            this.text = text;
+        }
+
+        Error unread() {
+            unread = true;
+            return this;
+        }
+
+        Error unknown() {
+            unknown = true;
+            return this;
+        }
+    }
+
+    class State {
+        final int id;
+        final WordSymbol accept;
+        final ArrayList<boolean[]> sets = new ArrayList<>();
+        final ArrayList<Object> targets = new ArrayList<>(); // State 或 Error
+        Object otherwise;
+        int accumulate; // 转移到本状态的字符怎样累加，见 LexerTable.HASH
+
+        State(int id, WordSymbol accept) {
+            this.id = id;
+            this.accept = accept;
+        }
+
+        State on(String chars, State state) {
+            return on(set(chars), state);
+        }
+
+        State on(boolean[] set, State state) {
+            sets.add(set);
+            targets.add(state);
+            return this;
+        }
+
+        State on(String chars, Error error) {
+            return on(set(chars), error);
+        }
+
+        State on(boolean[] set, Error error) {
+            sets.add(set);
+            targets.add(error);
+            return this;
+        }
+
+        State otherwise(Error error) {
+            otherwise = error;
+            return this;
+        }
+
+        // 转移到本状态的字符计入标识符的哈希
+        State hashed() {
+            accumulate = LexerTable.HASH;
+            return this;
+        }
+
+        // 转移到本状态的字符按 radix 进制累加为无符号整数的值
+        State digits(int radix) {
+            accumulate = radix;
+            return this;
+        }
+    }
+
+    private final ArrayList<State> states = new ArrayList<>();
+    private final HashMap<String, WordSymbol> keywords = new HashMap<>();
+    private final HashMap<String, State> prefixes = new HashMap<>(); // 固定单词的各个前缀对应的状态
+    private final State start;
+
+    TokenSpec() {
+        start = state(null);
+    }
+
+    State start() {
+        return start;
+    }
+
+    // accept 为 null 的状态不能结束单词
+    State state(WordSymbol accept) {
+        State state = new State(states.size(), accept);
+        states.add(state);
+        return state;
+    }
+
+    // 固定的运算符和分界符，按前缀共用状态
+    void fixed(String text, WordSymbol symbol) {
+        State state = start;
+        for (int i = 1; i <= text.length(); ++i) {
+            String prefix = text.substring(0, i);
+            State next = prefixes.get(prefix);
+            if (next == null) {
+                next = state(i == text.length() ? symbol : null);
+                state.on(set(String.valueOf(text.charAt(i - 1))), next);
+                prefixes.put(prefix, next);
+            } else if (i == text.length()) {
+                throw new IllegalStateException("单词 " + text + " 重复");
+            }
+            state = next;
+        }
+    }
+
+    // 固定单词的前缀 text 对应的状态
+    State after(String text) {
+        return prefixes.get(text);
+    }
+
+    // 关键字先按标识符识别，再查表
+    void keyword(String text, WordSymbol symbol) {
+        keywords.put(text, symbol);
+    }
+
+    static boolean[] set(String chars) {
+        boolean[] set = new boolean[CHARS];
+        for (int i = 0; i < chars.length(); ++i) {
+            set[chars.charAt(i)] = true;
+        }
+        return set;
+    }
+
+    static boolean[] range(int from, int to) {
+        boolean[] set = new boolean[CHARS];
+        for (int c = from; c <= to; ++c) {
+            set[c] = true;
+        }
+        return set;
+    }
+
+    static boolean[] union(boolean[]... sets) {
+        boolean[] set = new boolean[CHARS];
+        for (boolean[] s : sets) {
+            for (int i = 0; i < CHARS; ++i) {
+                set[i] |= s[i];
+            }
+        }
+        return set;
+    }
+
+    // 所有字符集的成员关系都相同的字符归为一类
+    LexerTable build() {
+        ArrayList<boolean[]> all = new ArrayList<>();
+        for (State state : states) {
+            all.addAll(state.sets);
+        }
+        int[] classes = new int[CHARS];
+        HashMap<String, Integer> signatures = new HashMap<>();
+        ArrayList<Integer> representatives = new ArrayList<>();
+        for (int c = 0; c < CHARS; ++c) {
+            StringBuilder signature = new StringBuilder(all.size());
+            for (boolean[] set : all) {
+                signature.append(set[c] ? '1' : '0');
+            }
+            Integer id = signatures.get(signature.toString());
+            if (id == null) {
+                id = representatives.size();
+                signatures.put(signature.toString(), id);
+                representatives.add(c);
+            }
+            classes[c] = id;
+        }
+        int classCount = representatives.size();
+        ArrayList<Error> errors = new ArrayList<>();
+        int[] transitions = new int[states.size() * classCount];
+        WordSymbol[] accepts = new WordSymbol[states.size()];
+        int[] accumulates = new int[states.size()];
+        for (State state : states) {
+            accepts[state.id] = state.accept;
+            accumulates[state.id] = state.accumulate;
+            for (int k = 0; k < classCount; ++k) {
+                int c = representatives.get(k);
+                Object target = state.otherwise;
+                for (int j = 0; j < state.sets.size(); ++j) {
+                    if (state.sets.get(j)[c]) {
+                        target = state.targets.get(j);
+                        break;
+                    }
+                }
+                int next;
+                if (target instanceof State) {
+                    next = ((State) target).id;
+                } else if (target instanceof Error) {
+                    int index = errors.indexOf(target);
+                    if (index < 0) {
+                        index = errors.size();
+                        errors.add((Error) target);
+                    }
+                    next = LexerTable.ERROR - index;
+                } else if (state.accept != null) {
+                    next = LexerTable.ACCEPT;
+                } else {
+                    throw new IllegalStateException("状态 " + state.id + " 缺少字符 " + c + " 的转移");
+                }
+                transitions[state.id * classCount + k] = next;
+            }
+        }
+        return new LexerTable(classes, classCount, transitions, accepts, accumulates, start.id,
+                errors.toArray(new Error[0]), keywords);
+    }
+
+    // c0 的全部单词
+    static TokenSpec c0() {
+        boolean[] letter = union(range('a', 'z'), range('A', 'Z'), set("_"));
+        boolean[] digit = range('0', '9');
+        boolean[] hex = union(digit, range('a', 'f'), range('A', 'F'));
+        boolean[] escape = set("\\'\"nrt");
+        boolean[] printable = union(range(' ', '~'), set("\t"));
+        TokenSpec spec = new TokenSpec();
+        State start = spec.start();
+
+        String[] keywords = {"const", "void", "int", "char", "double", "struct", "if", "else", "switch", "case",
+                "default", "while", "for", "do", "return", "break", "continue", "print", "scan"};
+        WordSymbol[] symbols = {WordSymbol.Const, WordSymbol.Void, WordSymbol.Int, WordSymbol.Char, WordSymbol.Double,
+                WordSymbol.Struct, WordSymbol.If, WordSymbol.Else, WordSymbol.Switch, WordSymbol.Case,
+                WordSymbol.Default, WordSymbol.While, WordSymbol.For, WordSymbol.Do, WordSymbol.Return,
+                WordSymbol.Break, WordSymbol.Continue, WordSymbol.Print, WordSymbol.Scan};
+        for (int i = 0; i < keywords.length; ++i) {
+            spec.keyword(keywords[i], symbols[i]);
+        }
+
+        State identifier = spec.state(WordSymbol.Identifier).hashed();
+        start.on(letter, identifier);
+        identifier.on(union(letter, digit), identifier);
+
+        // 0、十六进制数、十进制数，数值边识别边累加，越界在接受后检查
+        State zero = spec.state(WordSymbol.UnsignedInt).digits(10);
+        State hexPrefix = spec.state(null);
+        State hexNumber = spec.state(WordSymbol.UnsignedInt).digits(16);
+        State decimal = spec.state(WordSymbol.UnsignedInt).digits(10);
+        start.on("0", zero);
+        start.on(digit, decimal);
+        zero.on(digit, new Error(WordError.NumberStartFromZero, Text.Slice).unknown());
+        zero.on("xX", hexPrefix);
+        zero.on(letter, new Error(WordError.InvalidIdentifier, Text.Slice));
+        hexPrefix.on(hex, hexNumber);
+        hexPrefix.otherwise(new Error(WordError.InvalidHexNumber, Text.Slice));
+        hexNumber.on(hex, hexNumber);
+        hexNumber.on(letter, new Error(WordError.InvalidHexNumber, Text.Slice));
+        decimal.on(digit, decimal);
+        decimal.on(letter, new Error(WordError.InvalidIdentifier, Text.Slice));
+
+        State string = spec.state(null);
+        State stringEnd = spec.state(WordSymbol.StringLiteral);
+        State stringEscape = spec.state(null);
+        State stringHex1 = spec.state(null);
+        State stringHex2 = spec.state(null);
+        start.on("\"", string);
+        string.on("\"", stringEnd);
+        string.on("\\", stringEscape);
+        string.on(printable, string);
+        string.otherwise(new Error(WordError.InvalidStringLiteral, Text.Decode));
+        stringEscape.on("x", stringHex1);
+        stringEscape.on(escape, string);
+        stringEscape.otherwise(new Error(WordError.InvalidEscape, Text.DecodeAndChar));
+        stringHex1.on(hex, stringHex2);
+        stringHex1.otherwise(new Error(WordError.InvalidStringLiteral, Text.DecodeAndChar));
+        stringHex2.on(hex, string);
+        stringHex2.otherwise(new Error(WordError.InvalidStringLiteral, Text.DecodeAndChar));
+
+        State character = spec.state(null);
+        State characterEnd = spec.state(WordSymbol.CharLiteral);
+        State characterClose = spec.state(null);
+        State characterEscape = spec.state(null);
+        State characterHex1 = spec.state(null);
+        State characterHex2 = spec.state(null);
+        start.on("'", character);
+        character.on("\\", characterEscape);
+        character.on("'", new Error(WordError.InvalidCharLiteral, Text.Empty));
+        character.on(printable, characterClose);
+        character.otherwise(new Error(WordError.InvalidCharLiteral, Text.Empty));
+        characterEscape.on("x", characterHex1);
+        characterEscape.on(escape, characterClose);
+        characterEscape.otherwise(new Error(WordError.InvalidEscape, Text.Char));
+        characterHex1.on(hex, characterHex2);
+        characterHex1.otherwise(new Error(WordError.InvalidCharLiteral, Text.Char));
+        characterHex2.on(hex, characterClose);
+        characterHex2.otherwise(new Error(WordError.InvalidCharLiteral, Text.Char));
+        characterClose.on("'", characterEnd);
+        characterClose.otherwise(new Error(WordError.InvalidCharLiteral, Text.DecodeAllAndChar));
+
+        spec.fixed("+", WordSymbol.Plus);
+        spec.fixed("-", WordSymbol.Minus);
+        spec.fixed("*", WordSymbol.Multi);
+        spec.fixed("/", WordSymbol.Div);
+        spec.fixed("=", WordSymbol.Assign);
+        spec.fixed("==", WordSymbol.Equal);
+        spec.fixed("<", WordSymbol.Less);
+        spec.fixed("<=", WordSymbol.LessOrEqual);
+        spec.fixed(">", WordSymbol.Greater);
+        spec.fixed(">=", WordSymbol.GreaterOrEqual);
+        spec.fixed("!=", WordSymbol.NotEqual);
+        spec.fixed("{", WordSymbol.LeftBrace);
+        spec.fixed("}", WordSymbol.RightBrace);
+        spec.fixed("(", WordSymbol.LeftParenthesis);
+        spec.fixed(")", WordSymbol.RightParenthesis);
+        spec.fixed(",", WordSymbol.Comma);
+        spec.fixed(";", WordSymbol.Semicolon);
+        // 单独的 ! 不是单词
+        spec.after("!").otherwise(new Error(WordError.UnknownSeparator, Text.Slice).unread().unknown());
+
+        start.on(range(EOF, EOF), spec.state(WordSymbol.EOF));
+        start.on(range(0, HIGH), spec.state(WordSymbol.Unknown));
+        return spec;
+    }
+}
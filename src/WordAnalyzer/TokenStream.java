@@ -0,0 +1,183 @@
+package WordAnalyzer;
+
+import java.util.concurrent.locks.LockSupport;
+
+// 边词法分析边语法分析用的环形单词缓冲区
+// 只保留语法分析器还可能回退到的单词和预读的单词，占用的内存与源文件大小无关
+public class TokenStream implements TokenSource {
+    private static final WordSymbol[] SYMBOLS = WordSymbol.values();
+
+    private final WordAnalyzer wordAnalyzer;
+    private final int lookbehind;
+    private final int capacity;
+    private final int mask;
+    private final int[] symbols;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] values;
+    private volatile int produced = 0; // 已经写入的单词数
+    private volatile int highWater = -1; // 语法分析器读到过的最大下标
+    private volatile boolean finished = false;
+    private volatile boolean closed = false;
+    private volatile boolean producerWaiting = false;
+    private volatile boolean consumerWaiting = false;
+    private volatile Thread producer;
+    private volatile Thread consumer;
+    private volatile RuntimeException failure;
+    private WordException error;
+    private int errorIndex;
+    private String errorMessage;
+
+    // lookbehind 是语法分析器最多回退的单词数，ahead 是允许词法分析器领先的单词数
+    public TokenStream(WordAnalyzer wordAnalyzer, int lookbehind, int ahead) {
+        this.wordAnalyzer = wordAnalyzer;
+        this.lookbehind = lookbehind;
+        int capacity = Integer.highestOneBit(Math.max(lookbehind + ahead, 1) * 2 - 1);
+        this.capacity = Math.max(capacity, lookbehind + 1);
+        this.mask = this.capacity - 1;
+        symbols = new int[this.capacity];
+        offsets = new int[this.capacity];
+        lengths = new int[this.capacity];
+        values = new int[this.capacity];
+    }
+
+    // 在单独的线程中进行词法分析，不调用时在语法分析器读单词时同步进行
+    public void start() {
+        producer = new Thread(this::run, "WordAnalyzer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    public void close() {
+        closed = true;
+        Thread thread = producer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        try {
+            while (!finished && !closed) {
+                while (!closed && !writable()) {
+                    producerWaiting = true;
+                    if (!closed && !writable()) {
+                        LockSupport.park(this);
+                    }
+                    producerWaiting = false;
+                }
+                if (!closed) {
+                    produce();
+                }
+                if (consumerWaiting) {
+                    LockSupport.unpark(consumer);
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            finished = true;
+            if (consumerWaiting) {
+                LockSupport.unpark(consumer);
+            }
+        }
+    }
+
+    // 下一个单词要覆盖的槽位不会再被语法分析器访问时才能写入
+    private boolean writable() {
+        return produced - capacity < Math.max(highWater - lookbehind, 0);
+    }
+
+    private void produce() {
+        int index = produced;
+        int slot = index & mask;
+        WordSymbol symbol;
+        try {
+            symbol = wordAnalyzer.getsym();
+        } catch (WordException e) {
+            // 出错的位置用 EOF 占位，语法分析器读到这里时由调用者报告词法错误
+            error = e;
+            errorIndex = index;
+            errorMessage = wordAnalyzer.getErrorMessage(e);
+            symbol = WordSymbol.EOF;
+        }
+        symbols[slot] = symbol.ordinal();
+        offsets[slot] = wordAnalyzer.getTokenStart();
+        lengths[slot] = wordAnalyzer.getTokenLength();
+        values[slot] = wordAnalyzer.getValue();
+        produced = index + 1;
+        if (symbol == WordSymbol.EOF) {
+            finished = true;
+        }
+    }
+
+    private int slot(int index) {
+        if (index > highWater) {
+            highWater = index;
+            if (producerWaiting) {
+                LockSupport.unpark(producer);
+            }
+        }
+        if (index >= produced) {
+            if (producer == null) {
+                while (index >= produced && !finished) {
+                    produce();
+                }
+            } else {
+                consumer = Thread.currentThread();
+                while (index >= produced && !finished) {
+                    consumerWaiting = true;
+                    if (index >= produced && !finished) {
+                        LockSupport.park(this);
+                    }
+                    consumerWaiting = false;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (index >= produced) {
+                // 越过文件结尾时一直返回 EOF
+                index = produced - 1;
+            }
+        }
+        if (index < highWater - lookbehind || index < produced - capacity) {
+            throw new IllegalStateException("单词 " + index + " 已经移出缓冲区");
+        }
+        return index & mask;
+    }
+
+    // 语法分析器是否已经读到了词法错误的位置
+    public boolean failed() {
+        return error != null && highWater >= errorIndex;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public WordSymbol symbol(int index) {
+        return SYMBOLS[symbols[slot(index)]];
+    }
+
+    @Override
+    public int offset(int index) {
+        return offsets[slot(index)];
+    }
+
+    @Override
+    public int length(int index) {
+        return lengths[slot(index)];
+    }
+
+    @Override
+    public int value(int index) {
+        return values[slot(index)];
+    }
+
+    @Override
+    public String text(int index) {
+        int slot = slot(index);
+        return wordAnalyzer.getText(SYMBOLS[symbols[slot]], offsets[slot], lengths[slot]);
+    }
+}
@@ -1,57 +1,125 @@
 package WordAnalyzer;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class WordAnalyzer {
-    private PushbackReader reader;
-    public String token;
+    private ByteBuffer buffer;
+    private int limit;
+    private int position = 0;
+    private int tokenStart = 0;
+    private String token; // 按需生成，null 表示尚未从源码切片中取出
     public String num;
     public int count = 0;
     public WordSymbol symbol;
-    public int lineOffset = 1;
-    public int wordOffset = 1;
     private char ch;
-    private ArrayList<Integer> wordOffsetOfLine = new ArrayList<>();
-    private Map<String, WordSymbol> reserves = new HashMap<String, WordSymbol>() {
-        {
-            put("const", WordSymbol.Const);
-            put("void", WordSymbol.Void);
-            put("int", WordSymbol.Int);
-            put("char", WordSymbol.Char);
-            put("double", WordSymbol.Double);
-            put("struct", WordSymbol.Struct);
-            put("if", WordSymbol.If);
-            put("else", WordSymbol.Else);
-            put("switch", WordSymbol.Switch);
-            put("case", WordSymbol.Case);
-            put("default", WordSymbol.Default);
-            put("while", WordSymbol.While);
-            put("for", WordSymbol.For);
-            put("do", WordSymbol.Do);
-            put("return", WordSymbol.Return);
-            put("break", WordSymbol.Break);
-            put("continue", WordSymbol.Continue);
-            put("scan", WordSymbol.Scan);
-            put("print", WordSymbol.Print);
-        }
-    };
+    private volatile int[] lineStarts; // 每行起始位置，第一次报告错误时才建立
+    private static final LexerTable TABLE = TokenSpec.c0().build();
+    private Identifiers identifiers = new Identifiers();
+    private int value; // 标识符的编号，或整数、字符字面量的值
 
     public WordAnalyzer(String source) {
-        try {
-            reader = new PushbackReader(new FileReader(source));
-        } catch (FileNotFoundException e) {
+        // 源文件直接映射到内存，词法分析期间不再逐字符经过 Reader
+        try (FileChannel channel = FileChannel.open(Paths.get(source), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                System.out.println("目标文件过大！");
+                System.exit(-1);
+            }
+            init(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
             System.out.println("目标文件不存在！");
             System.exit(-1);
+        } catch (IOException e) {
+            System.out.println("读出错！");
+            System.exit(-1);
         }
     }
 
+    public WordAnalyzer(ByteBuffer buffer) {
+        init(buffer);
+    }
+
+    // 从 start 处开始分析，start 须为单词或空白、注释的开头
+    public WordAnalyzer(ByteBuffer buffer, int start) {
+        init(buffer);
+        position = start;
+    }
+
+    // previous 的源码在 offset 处删去 removed 个字符、插入 inserted 之后的词法分析器，与 previous 共用标识符表
+    public WordAnalyzer(WordAnalyzer previous, int offset, int removed, String inserted) {
+        ByteBuffer source = previous.buffer;
+        int size = previous.limit - removed + inserted.length();
+        ByteBuffer edited = ByteBuffer.allocate(size);
+        edited.put(source.duplicate().position(0).limit(offset));
+        edited.put(inserted.getBytes(StandardCharsets.ISO_8859_1));
+        edited.put(source.duplicate().position(offset + removed).limit(previous.limit));
+        edited.flip();
+        init(edited);
+        identifiers = previous.identifiers;
+    }
+
+    private void init(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    public int size() {
+        return limit;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    // 把整个源文件分析成单词表，最后一个单词为 EOF
+    public TokenBuffer tokenize() throws WordException {
+        TokenBuffer tokenBuffer = new TokenBuffer(this);
+        do {
+            getsym();
+            tokenBuffer.add(symbol, tokenStart, position - tokenStart, value);
+        } while (symbol != WordSymbol.EOF);
+        return tokenBuffer;
+    }
+
+    // 源码修改后增量地重新分析，previous 是修改前的单词表，修改同构造方法的参数
+    // 只从修改处之前最后一个完整的单词之后开始分析，直到新单词的起点与修改处之后某个旧单词的起点对齐，
+    // 此后的单词与旧单词表相同，只需平移偏移
+    // 新出现的标识符编号接在原有编号之后，与对修改后的源码整体分析得到的编号不一定相同
+    public TokenBuffer relex(TokenBuffer previous, int offset, int removed, int inserted) throws WordException {
+        int delta = inserted - removed;
+        int editEnd = offset + inserted; // 修改后源码中被修改部分的结尾
+        int keep = previous.lastEndingBefore(offset) + 1;
+        TokenBuffer tokenBuffer = new TokenBuffer(this, previous, keep);
+        position = keep == 0 ? 0 : previous.offset(keep - 1) + previous.length(keep - 1);
+        do {
+            getsym();
+            if (tokenStart >= editEnd) {
+                int index = previous.indexOf(tokenStart - delta, keep);
+                if (index >= 0) {
+                    tokenBuffer.addAll(previous, index, previous.size(), delta);
+                    return tokenBuffer;
+                }
+            }
+            tokenBuffer.add(symbol, tokenStart, position - tokenStart, value);
+        } while (symbol != WordSymbol.EOF);
+        return tokenBuffer;
+    }
+
+    public Identifiers getIdentifiers() {
+        return identifiers;
+    }
+
+    // 标识符的编号，或整数、字符字面量的值
+    public int getValue() {
+        return value;
+    }
+
     public String getType() {
         switch (symbol) {
             case UnsignedInt:
@@ -96,375 +164,367 @@ public class WordAnalyzer {
         }
     }
 
-    private void unread() {
-        try {
-            reader.unread(ch);
-            --wordOffset;
-            if (ch == '\n') {
-                --lineOffset;
-                getWordOffset();
-            }
-        } catch (IOException e) {
-            System.out.println("不能unread!");
+    // 当前单词在源码中的起始位置
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    // 当前单词在源码中占用的字节数
+    public int getTokenLength() {
+        return position - tokenStart;
+    }
+
+    public String getToken() {
+        if (token == null) {
+            token = getText(symbol, tokenStart, position - tokenStart);
         }
+        return token;
     }
 
-    private void read() {
-        try {
-            boolean newLine = false;
-            if (ch == '\n') {
-                newLine = true;
-            }
-            ch = (char) reader.read();
-            ++wordOffset;
-            if (newLine) {
-                addWordOffset();
-                ++lineOffset;
-                wordOffset = 1;
-            }
-        } catch (IOException e) {
-            System.out.println("读出错！");
+    // 由单词在源码中的切片生成其文本
+    public String getText(WordSymbol symbol, int start, int length) {
+        switch (symbol) {
+            case StringLiteral:
+            case CharLiteral:
+                return decode(start + 1, start + length - 1);
+            case UnsignedInt:
+                if (length == 1 && charAt(start) == '0') {
+                    return "0";
+                }
+                return "0x" + toBigInteger(start, start + length).toString(16);
+            case EOF:
+            case Unknown:
+                return "";
+            default:
+                return slice(start, start + length);
         }
     }
 
-    private void addWordOffset() {
-        if (lineOffset - 1 < wordOffsetOfLine.size()) {
-            wordOffsetOfLine.set(lineOffset - 1, wordOffset);
-        } else {
-            wordOffsetOfLine.add(wordOffset);
+    private char charAt(int index) {
+        if (index < limit) {
+            return (char) (buffer.get(index) & 0xff);
         }
+        return 65535;
     }
 
-    private void getWordOffset() {
-        wordOffset = wordOffsetOfLine.get(lineOffset - 1);
+    private String slice(int from, int to) {
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; ++i) {
+            chars[i - from] = charAt(i);
+        }
+        return new String(chars);
     }
 
-    private WordSymbol isReserved() {
-        WordSymbol symbol = reserves.get(token);
-        if (symbol == null) {
-            symbol = WordSymbol.Identifier;
+    // 还原字符串或字符字面量中的转义，调用前转义已经检查过
+    private String decode(int from, int to) {
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int i = from; i < to; i += charLength(i)) {
+            builder.append(charValue(i));
         }
-        return symbol;
+        return builder.toString();
     }
 
-    public WordSymbol getsym() throws WordException {
-        ++count;
-        read();
-        clearToken();
-        while (isSpace() || isNewLine() || isTab()) {
-            read();
+    // 字面量中从 index 开始的一个字符（可能是转义序列）占用的字节数
+    private int charLength(int index) {
+        if (charAt(index) != '\\') {
+            return 1;
         }
-        if (isLetter()) {
-            while (isLetter() || isDigit()) {
-                catToken();
-                read();
-            }
-            unread();
-            symbol = isReserved();
-        } else if (isDigit()) {
-            if (isZero()) {
-                catToken();
-                read();
-                if (isDigit()) {
-                    symbol = WordSymbol.Unknown;
-                    throw new WordException(WordError.NumberStartFromZero);
-                } else if (ch == 'x' || ch == 'X') {
-                    catToken();
-                    read();
-                    while (isHexadecimalDigit()) {
-                        catToken();
-                        read();
-                    }
-                    if (isLetter()) {
-                        throw new WordException(WordError.InvalidHexNumber);
-                    }
-                    unread();
-                    if (checkHexOverFlow()) {
-                        throw new WordException(WordError.NumberOutOfRange);
-                    }
-                } else if (isLetter()) {
-                    throw new WordException(WordError.InvalidIdentifier);
-                } else {
-                    unread();
-                }
-            } else {
-                while (isDigit()) {
-                    catToken();
-                    read();
-                }
-                if (isLetter()) {
-                    throw new WordException(WordError.InvalidIdentifier);
-                }
-                unread();
-                if (checkIntOverFlow()) {
-                    throw new WordException(WordError.NumberOutOfRange);
-                }
-            }
-            symbol = WordSymbol.UnsignedInt;
-        } else if (ch == '"') {
-            read();
-            while (ch != '"') {
-                if (ch == '\\') {
-                    read();
-                    if (ch == 'x') {
-                        String str = "";
-                        read();
-                        if (!isHexadecimalDigit()) {
-                            catToken();
-                            throw new WordException(WordError.InvalidStringLiteral);
-                        }
-                        str += ch;
-                        read();
-                        if (!isHexadecimalDigit()) {
-                            catToken();
-                            throw new WordException(WordError.InvalidStringLiteral);
-                        }
-                        str += ch;
-                        ch = (char) Integer.parseInt(str, 16);
-                    } else if (isEscapeChar()) {
-                        switch (ch) {
-                            case 'n':
-                                ch = '\n';
-                                break;
-                            case 'r':
-                                ch = '\r';
-                                break;
-                            case 't':
-                                ch = '\t';
-                                break;
-                        }
-                    } else {
-                        catToken();
-                        throw new WordException(WordError.InvalidEscape);
-                    }
-                } else if (ch == 65535) {
-                    throw new WordException(WordError.InvalidStringLiteral);
-                } else if (ch != '\t' && (ch <= 31 || ch >= 127)) {
-                    throw new WordException(WordError.InvalidStringLiteral);
+        return charAt(index + 1) == 'x' ? 4 : 2;
+    }
+
+    // 字面量中从 index 开始的一个字符（可能是转义序列）的值
+    private char charValue(int index) {
+        char c = charAt(index);
+        if (c != '\\') {
+            return c;
+        }
+        c = charAt(index + 1);
+        switch (c) {
+            case 'x':
+                return (char) (hexValue(charAt(index + 2)) * 16 + hexValue(charAt(index + 3)));
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return c;
+        }
+    }
+
+    private WordException error(WordError error, String token) {
+        this.token = token;
+        return new WordException(error);
+    }
+
+    private void unread() {
+        --position;
+    }
+
+    private void read() {
+        ch = charAt(position++);
+    }
+
+    private int[] lineStarts() {
+        int[] starts = lineStarts;
+        if (starts == null) {
+            int lines = 1;
+            for (int i = 0; i < limit; ++i) {
+                if (buffer.get(i) == '\n') {
+                    ++lines;
                 }
-                catToken();
-                read();
             }
-            symbol = WordSymbol.StringLiteral;
-        } else if (ch == '\'') {
-            read();
-            if (ch == '\\') {
-                read();
-                if (ch == 'x') {
-                    String str = "";
-                    read();
-                    if (!isHexadecimalDigit()) {
-                        catToken();
-                        throw new WordException(WordError.InvalidCharLiteral);
-                    }
-                    str += ch;
-                    read();
-                    if (!isHexadecimalDigit()) {
-                        catToken();
-                        throw new WordException(WordError.InvalidCharLiteral);
-                    }
-                    str += ch;
-                    ch = (char) Integer.parseInt(str, 16);
-                } else if (isEscapeChar()) {
-                    switch (ch) {
-                        case 'n':
-                            ch = '\n';
-                            break;
-                        case 'r':
-                            ch = '\r';
-                            break;
-                        case 't':
-                            ch = '\t';
-                            break;
-                    }
-                } else {
-                    catToken();
-                    throw new WordException(WordError.InvalidEscape);
-                }
-                catToken();
-                read();
-                if (ch != '\'') {
-                    catToken();
-                    throw new WordException(WordError.InvalidCharLiteral);
-                }
-            } else if (ch == '\'') {
-                throw new WordException(WordError.InvalidCharLiteral);
-            } else if (ch == 65535) {
-                throw new WordException(WordError.InvalidCharLiteral);
-            } else if (ch != '\t' && (ch <= 31 || ch >= 127)) {
-                throw new WordException(WordError.InvalidCharLiteral);
-            } else {
-                catToken();
-                read();
-                if (ch != '\'') {
-                    catToken();
-                    throw new WordException(WordError.InvalidCharLiteral);
+            starts = new int[lines];
+            lines = 1;
+            for (int i = 0; i < limit; ++i) {
+                if (buffer.get(i) == '\n') {
+                    starts[lines++] = i + 1;
                 }
             }
-            symbol = WordSymbol.CharLiteral;
-        } else if (ch == '=') {
-            catToken();
-            read();
-            if (ch == '=') {
-                symbol = WordSymbol.Equal;
-                catToken();
-            } else {
-                unread();
-                symbol = WordSymbol.Assign;
-            }
-        } else if (ch == '!') {
-            catToken();
-            read();
-            if (ch == '=') {
-                symbol = WordSymbol.NotEqual;
-                catToken();
+            lineStarts = starts;
+        }
+        return starts;
+    }
+
+    // 源码中 offset 处所在的行，从 1 开始
+    public int getLine(int offset) {
+        int[] starts = lineStarts();
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle;
             } else {
-                unread();
-                symbol = WordSymbol.Unknown;
-                throw new WordException(WordError.UnknownSeparator);
+                high = middle - 1;
             }
-        } else if (ch == '<') {
-            catToken();
-            read();
-            if (ch == '=') {
-                symbol = WordSymbol.LessOrEqual;
-                catToken();
-            } else {
-                unread();
-                symbol = WordSymbol.Less;
+        }
+        return low + 1;
+    }
+
+    // 源码中 offset 处所在的列，从 1 开始
+    public int getColumn(int offset) {
+        return offset - lineStarts()[getLine(offset) - 1] + 1;
+    }
+
+    // 词法错误的描述，位置为出错单词的起始列
+    public String getErrorMessage(WordException e) {
+        int offset = position - 1;
+        return e.getMessage() + " at " + getLine(offset) + ":" + (getColumn(offset) - getToken().length() + 1) + " word: " + getToken();
+    }
+
+    private WordSymbol identifier(int hash) {
+        value = identifiers.intern(buffer, tokenStart, position - tokenStart, hash);
+        return WordSymbol.Identifier;
+    }
+
+    // 跳过空白和注释，结束时 ch 为下一个单词的第一个字符
+    // 与 getsym 的循环一样，位置和当前字符只放在局部变量里，返回或出错前再写回
+    private void skip() throws WordException {
+        int index = position;
+        char c = ch;
+        while (true) {
+            while (isSpace(c) || isNewLine(c) || isTab(c)) {
+                c = charAt(index++);
             }
-        } else if (ch == '>') {
-            catToken();
-            read();
-            if (ch == '=') {
-                symbol = WordSymbol.GreaterOrEqual;
-                catToken();
-            } else {
-                unread();
-                symbol = WordSymbol.Greater;
+            if (c != '/' || (charAt(index) != '/' && charAt(index) != '*')) {
+                break;
             }
-        } else if (ch == '+') {
-            catToken();
-            symbol = WordSymbol.Plus;
-        } else if (ch == '-') {
-            catToken();
-            symbol = WordSymbol.Minus;
-        } else if (ch == '*') {
-            catToken();
-            symbol = WordSymbol.Multi;
-        } else if (ch == '(') {
-            catToken();
-            symbol = WordSymbol.LeftParenthesis;
-        } else if (ch == ')') {
-            catToken();
-            symbol = WordSymbol.RightParenthesis;
-        } else if (ch == '{') {
-            catToken();
-            symbol = WordSymbol.LeftBrace;
-        } else if (ch == '}') {
-            catToken();
-            symbol = WordSymbol.RightBrace;
-        } else if (ch == ',') {
-            catToken();
-            symbol = WordSymbol.Comma;
-        } else if (ch == ';') {
-            catToken();
-            symbol = WordSymbol.Semicolon;
-        } else if (ch == '/') {
-            catToken();
-            read();
-            if (ch == '/') {
-                while (ch != '\n') {
-                    if (ch == 65535) {
-                        symbol = WordSymbol.EOF;
-                        break;
-                    }
-                    read();
+            c = charAt(index++);
+            if (c == '/') {
+                while (c != '\n' && c != 65535) {
+                    c = charAt(index++);
                 }
-                getsym();
-            } else if (ch == '*') {
-                label1:
+                if (c == 65535) {
+                    break;
+                }
+            } else {
+                c = charAt(index++);
                 while (true) {
-                    read();
-                    while (ch != '*') {
-                        if (ch == 65535) {
-                            throw new WordException(WordError.UnfinishedComment);
-                        }
-                        read();
-                    }
-                    while (ch == '*') {
-                        read();
-                        if (ch == '/') {
-                            break label1;
-                        } else if (ch == 65535) {
-                            throw new WordException(WordError.UnfinishedComment);
+                    if (c == 65535) {
+                        position = index;
+                        ch = c;
+                        throw error(WordError.UnfinishedComment, "/");
+                    } else if (c == '*') {
+                        c = charAt(index++);
+                        if (c == '/') {
+                            break;
                         }
+                    } else {
+                        c = charAt(index++);
                     }
                 }
-                getsym();
+            }
+            c = charAt(index++);
+        }
+        position = index;
+        ch = c;
+    }
+
+    // 读下一个单词，按 TokenSpec 生成的状态转移表识别
+    public WordSymbol getsym() throws WordException {
+        begin();
+        LexerTable table = TABLE;
+        // 单字符的分界符和运算符不必再读下一个字符
+        if (ch < 128 && table.singles[ch] != null) {
+            symbol = table.singles[ch];
+            return symbol;
+        }
+        int[] transitions = table.transitions;
+        byte[] accumulates = table.accumulates;
+        ByteBuffer buffer = this.buffer;
+        int limit = this.limit;
+        int state = table.start;
+        int hash = 0;
+        long number = 0;
+        // 循环中位置和当前字符只放在局部变量里，结束时再写回
+        int index = position;
+        int c = ch;
+        int next = transitions[state + LexerTable.column(ch)];
+        while (next >= 0) {
+            state = next;
+            int accumulate = accumulates[state];
+            if (accumulate == LexerTable.HASH) {
+                hash = 31 * hash + c;
+            } else if (accumulate != 0 && number <= Integer.MAX_VALUE) {
+                // 超出范围后不再累加，避免 long 也溢出
+                number = number * accumulate + table.digits[c];
+            }
+            if (index < limit) {
+                c = buffer.get(index) & 0xff;
+                next = transitions[state + c];
             } else {
-                unread();
-                symbol = WordSymbol.Div;
+                c = 65535;
+                next = transitions[state + LexerTable.EOF];
             }
-        } else if (ch == 65535) {
-            symbol = WordSymbol.EOF;
-        } else {
-            symbol = WordSymbol.Unknown;
+            ++index;
         }
+        position = index;
+        ch = (char) c;
+        if (next != LexerTable.ACCEPT) {
+            throw tableError(table.errors[LexerTable.ERROR - next]);
+        }
+        unread();
+        symbol = accept(table.accepts[state], hash, number);
         return symbol;
     }
 
-    private boolean checkIntOverFlow() {
-        BigInteger bigInteger = new BigInteger(token, 10);
-        String str = bigInteger.toString(16);
-        token = "0x" + str;
-        return bigInteger.bitLength() >= 32;
+    // 循环结束后按接受的单词计算标识符编号或字面量的值
+    private WordSymbol accept(WordSymbol accepted, int hash, long number) throws WordException {
+        if (accepted == WordSymbol.Identifier) {
+            return keyword(TABLE, hash);
+        } else if (accepted == WordSymbol.UnsignedInt) {
+            value = number(number);
+        } else if (accepted == WordSymbol.CharLiteral) {
+            value = charValue(tokenStart + 1);
+        }
+        return accepted;
     }
 
-    private boolean checkHexOverFlow() {
-        BigInteger bigInteger = new BigInteger(token.substring(2), 16);
-        String str = bigInteger.toString(16);
-        token = "0x" + str;
-        return bigInteger.bitLength() >= 32;
+    private void begin() throws WordException {
+        ++count;
+        read();
+        clearToken();
+        skip();
+        tokenStart = position - 1;
+        value = 0;
     }
 
-    private boolean isNewLine() {
-        return ch == '\n';
+    private WordException tableError(TokenSpec.Error error) {
+        int index = position - 1;
+        String text;
+        switch (error.text) {
+            case Slice:
+                text = slice(tokenStart, index);
+                break;
+            case Decode:
+                text = decode(tokenStart + 1, unitStart(index));
+                break;
+            case DecodeAndChar:
+                text = decode(tokenStart + 1, unitStart(index)) + ch;
+                break;
+            case DecodeAllAndChar:
+                text = decode(tokenStart + 1, index) + ch;
+                break;
+            case Char:
+                text = String.valueOf(ch);
+                break;
+            default:
+                text = "";
+                break;
+        }
+        if (error.unread) {
+            unread();
+        }
+        if (error.unknown) {
+            symbol = WordSymbol.Unknown;
+        }
+        return error(error.error, text);
     }
 
-    public boolean isEscapeChar() {
-        return ch == '\\' || ch == '\'' || ch == '"' || ch == 'n' || ch == 'r' || ch == 't';
+    // 字符串中 index 处的字符所在的字符或转义序列的起始位置
+    private int unitStart(int index) {
+        int start = tokenStart + 1;
+        while (start < index && start + charLength(start) <= index) {
+            start += charLength(start);
+        }
+        return start;
     }
 
-    private boolean isSpace() {
-        return ch == ' ' || ch == '\r';
+    private WordSymbol keyword(LexerTable table, int hash) {
+        int i = table.slot(hash);
+        byte[] keyword = table.keywords[i];
+        if (table.keywordHashes[i] == hash && keyword.length == position - tokenStart) {
+            // 哈希相同时再逐个字节比较，排除碰撞
+            for (int j = 0; j < keyword.length; ++j) {
+                if (buffer.get(tokenStart + j) != keyword[j]) {
+                    return identifier(hash);
+                }
+            }
+            return table.keywordSymbols[i];
+        }
+        return identifier(hash);
     }
 
-    private boolean isHexadecimalDigit() {
-        return isDigit() || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+    // 循环中累加出的无符号整数的值，越界时报错
+    private int number(long number) throws WordException {
+        if (number > Integer.MAX_VALUE) {
+            throw error(WordError.NumberOutOfRange, getText(WordSymbol.UnsignedInt, tokenStart, position - tokenStart));
+        }
+        return (int) number;
     }
 
-    private boolean isTab() {
-        return ch == '\t';
+    // 只在输出单词和报告越界时用到，不在编译路径上
+    private BigInteger toBigInteger(int start, int end) {
+        if (end - start > 2 && (charAt(start + 1) == 'x' || charAt(start + 1) == 'X')) {
+            return new BigInteger(slice(start + 2, end), 16);
+        }
+        return new BigInteger(slice(start, end), 10);
     }
 
-    private boolean isLetter() {
-        return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || ch == '_';
+    private static int hexValue(char c) {
+        if (c <= '9') {
+            return c - '0';
+        } else if (c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return c - 'a' + 10;
     }
 
-    private boolean isDigit() {
-        return ch >= '0' && ch <= '9';
+    private static boolean isNewLine(char c) {
+        return c == '\n';
     }
 
-    private boolean isZero() {
-        return ch == '0';
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\r';
     }
 
-    private void clearToken() {
-        token = "";
+    private static boolean isTab(char c) {
+        return c == '\t';
     }
 
-    private void catToken() {
-        token = token + ch;
+    private void clearToken() {
+        token = null;
     }
 }
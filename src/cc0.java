@@ -1,8 +1,12 @@
 import SyntaxAnalyzer.SyntaxAnalyzer;
+import WordAnalyzer.ParallelTokenizer;
+import WordAnalyzer.TokenBuffer;
 import WordAnalyzer.WordAnalyzer;
 import WordAnalyzer.WordException;
 import WordAnalyzer.WordSymbol;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class cc0 {
 
     private static void wordAnalyze(String source) {
@@ -10,22 +14,72 @@ public class cc0 {
         while (true) {
             try {
                 if (wordAnalyzer.getsym() == WordSymbol.Unknown || wordAnalyzer.symbol == WordSymbol.EOF) break;
-                System.out.println(String.format("%-16d%-16s%-16s%-16s", wordAnalyzer.count, wordAnalyzer.getType(), wordAnalyzer.symbol, wordAnalyzer.token));
+                System.out.println(String.format("%-16d%-16s%-16s%-16s", wordAnalyzer.count, wordAnalyzer.getType(), wordAnalyzer.symbol, wordAnalyzer.getToken()));
             } catch (WordException e) {
-                System.out.println(e.getMessage() + " at " + wordAnalyzer.lineOffset + ":" + (wordAnalyzer.wordOffset - wordAnalyzer.token.length() + 1) + " word: " + wordAnalyzer.token);
+                System.out.println(wordAnalyzer.getErrorMessage(e));
                 break;
             }
         }
     }
 
+    // 只做词法分析，统计每秒处理的源码字节数
+    private static void wordThroughput(String source, int threads) {
+        WordAnalyzer wordAnalyzer = new WordAnalyzer(source);
+        int tokens = 0;
+        long begin = System.nanoTime();
+        if (threads > 1) {
+            ParallelTokenizer tokenizer = new ParallelTokenizer(wordAnalyzer, threads * 4);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                TokenBuffer tokenBuffer = tokenizer.tokenize(pool);
+                tokens = tokenBuffer.size() - 1;
+            } catch (WordException e) {
+                System.out.println(tokenizer.getErrorMessage());
+                return;
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            try {
+                while (wordAnalyzer.getsym() != WordSymbol.EOF) {
+                    ++tokens;
+                }
+            } catch (WordException e) {
+                System.out.println(wordAnalyzer.getErrorMessage(e));
+                return;
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println(String.format("%d tokens, %d bytes, %.3f ms, %.2f MB/s",
+                tokens, wordAnalyzer.size(), seconds * 1e3, wordAnalyzer.size() / 1e6 / seconds));
+    }
+
     private static void syntaxAnalyze(String source, boolean text) {
         SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new WordAnalyzer(source));
         syntaxAnalyzer.start(text);
     }
 
     private static void syntaxAnalyze(String source, String outputPath, boolean text) {
+        syntaxAnalyze(source, outputPath, text, false, 1, false, 1);
+    }
+
+    private static void syntaxAnalyze(String source, String outputPath, boolean text, boolean streaming, int threads,
+                                      boolean wide, int optimization) {
         SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer(new WordAnalyzer(source), outputPath);
-        syntaxAnalyzer.start(text);
+        syntaxAnalyzer.setThreads(threads);
+        syntaxAnalyzer.setWideFormat(wide);
+        syntaxAnalyzer.setOptimization(optimization);
+        syntaxAnalyzer.start(text, streaming);
+    }
+
+    // -j 之后的线程数，格式不对时返回 0
+    private static int threads(String arg) {
+        try {
+            int threads = Integer.parseInt(arg);
+            return threads > 0 ? threads : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     public static void main(String[] args) {
@@ -41,8 +95,15 @@ public class cc0 {
         if (args.length == 0) {
             System.out.println("  -s        将输入的 c0 源代码翻译为文本汇编文件\n" +
                     "  -c        将输入的 c0 源代码翻译为二进制目标文件\n" +
+                    "  -l        只对输入的 c0 源代码做词法分析并输出吞吐量 (MB/s)\n" +
                     "  -h        显示关于编译器使用的帮助\n" +
-                    "  -o file   输出到指定的文件 file");
+                    "  -o file   输出到指定的文件 file\n" +
+                    "  --stream  词法分析在单独的线程中与语法分析同时进行\n" +
+                    "  -j n      用 n 个线程分块并行做词法分析，并行分析各个函数并生成指令\n" +
+                    "  --wide    输出计数、下标和跳转目标都占 4 字节的宽格式目标文件 (版本 2)\n" +
+                    "  -O0       边分析边生成指令，不建立语法树\n" +
+                    "  -O1       先建立语法树并翻译为中间代码再生成指令\n" +
+                    "  -O2       在 -O1 的基础上对每个函数做窥孔优化，删去 main 用不到的函数 (默认)");
         } else {
             switch (args[0]) {
                 case "-s":
@@ -51,24 +112,77 @@ public class cc0 {
                 case "-c":
                     text = false;
                     break;
+                case "-l":
+                    int lexerThreads = 1;
+                    if (args.length == 4 && args[2].equals("-j")) {
+                        lexerThreads = threads(args[3]);
+                    } else if (args.length != 2) {
+                        lexerThreads = 0;
+                    }
+                    if (lexerThreads == 0) {
+                        System.out.println("Argument error 1!");
+                        return;
+                    }
+                    wordThroughput(args[1], lexerThreads);
+                    return;
                 case "-h":
                     System.out.println("  -s        将输入的 c0 源代码翻译为文本汇编文件\n" +
                             "  -c        将输入的 c0 源代码翻译为二进制目标文件\n" +
+                            "  -l        只对输入的 c0 源代码做词法分析并输出吞吐量 (MB/s)\n" +
                             "  -h        显示关于编译器使用的帮助\n" +
-                            "  -o file   输出到指定的文件 file");
+                            "  -o file   输出到指定的文件 file\n" +
+                            "  --stream  词法分析在单独的线程中与语法分析同时进行\n" +
+                            "  -j n      用 n 个线程分块并行做词法分析，并行分析各个函数并生成指令\n" +
+                            "  --wide    输出计数、下标和跳转目标都占 4 字节的宽格式目标文件 (版本 2)\n" +
+                            "  -O0       边分析边生成指令，不建立语法树\n" +
+                            "  -O1       先建立语法树并翻译为中间代码再生成指令\n" +
+                            "  -O2       在 -O1 的基础上对每个函数做窥孔优化，删去 main 用不到的函数 (默认)");
                     return;
                 default:
                     System.out.println("Argument error 0!");
                     return;
             }
             source = args[1];
-            if (4 == args.length) {
-                outputPath = args[3];
-            } else if (3 == args.length) {
-                System.out.println("Argument error 1!");
-                return;
+            boolean streaming = false;
+            boolean wide = false;
+            int threads = 1;
+            int optimization = 2;
+            for (int i = 2; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "-o":
+                        if (++i == args.length) {
+                            System.out.println("Argument error 1!");
+                            return;
+                        }
+                        outputPath = args[i];
+                        break;
+                    case "--stream":
+                        streaming = true;
+                        break;
+                    case "--wide":
+                        wide = true;
+                        break;
+                    case "-O0":
+                        optimization = 0;
+                        break;
+                    case "-O1":
+                        optimization = 1;
+                        break;
+                    case "-O2":
+                        optimization = 2;
+                        break;
+                    case "-j":
+                        if (++i == args.length || (threads = threads(args[i])) == 0) {
+                            System.out.println("Argument error 1!");
+                            return;
+                        }
+                        break;
+                    default:
+                        System.out.println("Argument error 1!");
+                        return;
+                }
             }
-            syntaxAnalyze(source, outputPath, text);
+            syntaxAnalyze(source, outputPath, text, streaming, threads, wide, optimization);
         }
     }
 }